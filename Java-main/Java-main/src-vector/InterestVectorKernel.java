@@ -0,0 +1,77 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+// SIMD kernel for InterestEngine on the incubating Vector API. It needs the module at
+// compile and run time, so it has its own source root and src builds without it.
+// Compile it against the classes built from src:
+//   javac --add-modules jdk.incubator.vector -cp bin -d bin src-vector/InterestVectorKernel.java
+//   java  --add-modules jdk.incubator.vector -cp bin InterestBenchmark
+// InterestEngine.vectorKernel() loads this class reflectively and falls back to the
+// scalar kernel when it cannot.
+//
+// Per block of lanes, the rate tiers are vector masks: each age cut (e.g. senior at 60)
+// and each amount cut (e.g. above 1 crore) is one compare whose mask bumps the band or
+// slab count, and the rate is gathered from the compiled rule table. The formula is
+// the same IEEE multiply/divide sequence as the scalar path, so results are identical.
+class InterestVectorKernel implements InterestEngine.Kernel {
+    private static final VectorSpecies<Double> D = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> I =
+        VectorSpecies.of(int.class, VectorShape.forBitSize(D.length() * Integer.SIZE));
+
+    @Override
+    public void compute(AccountTable table, RateResolver.Rules rules, int[] types,
+                        double[] out, int from, int to) {
+        double[] amount = table.amount;
+        int[] age = table.age;
+        int[] term = table.term;
+        byte[] product = table.product;
+        short[] type = table.type;
+        double[] rates = rules.table();
+        int[] ageCuts = rules.ageCuts();
+        double[] amountCuts = rules.amountCuts();
+        int slabs = rules.slabs();
+
+        // Cell base and divisor per (product, table type), so a lane needs one lookup each.
+        int typeCount = types.length;
+        int[] baseOf = new int[InterestEngine.DIVISOR.length * typeCount];
+        for (int p = 1; p < InterestEngine.DIVISOR.length; p++) {
+            for (int t = 0; t < typeCount; t++) baseOf[p * typeCount + t] = rules.cellBase(p, types[t]);
+        }
+
+        int lanes = D.length();
+        int[] base = new int[lanes];
+        int[] cell = new int[lanes];
+        double[] divisor = new double[lanes];
+        IntVector one = IntVector.broadcast(I, 1);
+        int i = from;
+        for (; i <= to - lanes; i += lanes) {
+            for (int j = 0; j < lanes; j++) {
+                int p = product[i + j];
+                base[j] = baseOf[p * typeCount + type[i + j]];
+                divisor[j] = InterestEngine.DIVISOR[p];
+            }
+            DoubleVector amounts = DoubleVector.fromArray(D, amount, i);
+            IntVector ages = IntVector.fromArray(I, age, i);
+            IntVector index = IntVector.fromArray(I, base, 0);
+            for (int cut : ageCuts) {
+                index = index.add(IntVector.broadcast(I, slabs), ages.compare(VectorOperators.GE, cut));
+            }
+            for (double cut : amountCuts) {
+                VectorMask<Integer> above = amounts.compare(VectorOperators.GT, cut).cast(I);
+                index = index.add(one, above);
+            }
+            index.intoArray(cell, 0);
+            DoubleVector rate = DoubleVector.fromArray(D, rates, 0, cell, 0);
+            DoubleVector terms = (DoubleVector) IntVector.fromArray(I, term, i).convertShape(VectorOperators.I2D, D, 0);
+            DoubleVector divisors = DoubleVector.fromArray(D, divisor, 0);
+            DoubleVector interest = amounts.mul(rate).mul(terms).div(divisors);
+            // NONE rows (divisor 0) earn nothing, as in the scalar path.
+            interest.blend(0.0, divisors.compare(VectorOperators.EQ, 0.0)).intoArray(out, i);
+        }
+        InterestEngine.SCALAR.compute(table, rules, types, out, i, to);
+    }
+}
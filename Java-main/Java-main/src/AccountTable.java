@@ -0,0 +1,75 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+// Struct-of-arrays account table for batch interest runs: one primitive column per
+// Account field instead of one object per account. Rows are appended and never move.
+class AccountTable {
+    static final byte NONE = 0, FD = 1, RD = 2;          // product codes
+
+    double[] amount = new double[1024];
+    int[] age = new int[1024];
+    int[] term = new int[1024];         // days for FD, months for RD
+    byte[] product = new byte[1024];
+    short[] type = new short[1024];     // code into typeName()
+    private final HashMap<String, Short> typeCodes = new HashMap<>();
+    private final ArrayList<String> typeNames = new ArrayList<>();
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    // Number of distinct account types; codes run from 0 to typeCount() - 1.
+    int typeCount() {
+        return typeNames.size();
+    }
+
+    String typeName(int code) {
+        return typeNames.get(code);
+    }
+
+    short typeCode(String accountType) {
+        Short code = typeCodes.get(accountType);
+        if (code != null) return code;
+        if (typeNames.size() == Short.MAX_VALUE) throw new IllegalStateException("Too many account types");
+        code = (short) typeNames.size();
+        typeCodes.put(accountType, code);
+        typeNames.add(accountType);
+        return code;
+    }
+
+    int add(double amount, short type, int age, byte product, int term) {
+        if (size == this.amount.length) grow();
+        int row = size++;
+        this.amount[row] = amount;
+        this.type[row] = type;
+        this.age[row] = age;
+        this.product[row] = product;
+        this.term[row] = term;
+        return row;
+    }
+
+    // Adds the account's fields as a row; plain Accounts get the NONE product.
+    int add(Exp3.Account account) {
+        byte product = NONE;
+        int term = 0;
+        if (account instanceof Exp3.FDAccount) {
+            product = FD;
+            term = ((Exp3.FDAccount) account).days;
+        } else if (account instanceof Exp3.RDAccount) {
+            product = RD;
+            term = ((Exp3.RDAccount) account).months;
+        }
+        return add(account.amount, typeCode(account.accountType), account.age, product, term);
+    }
+
+    private void grow() {
+        int capacity = amount.length * 2;
+        amount = Arrays.copyOf(amount, capacity);
+        age = Arrays.copyOf(age, capacity);
+        term = Arrays.copyOf(term, capacity);
+        product = Arrays.copyOf(product, capacity);
+        type = Arrays.copyOf(type, capacity);
+    }
+}
@@ -0,0 +1,359 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// In-memory book catalog. Rows are String[9] laid out like LibraryManagerApp.labels.
+// Rows live in insertion-ordered slots; a hash index on Book ID maps to the slot so
+// lookup and upsert are O(1). Deleted slots are tombstoned and compacted lazily.
+// Writes and the secondary indexes go through the catalog monitor, and listeners are
+// called while it is held. Lookups by ID (get, contains, size) read a concurrent map and
+// never block, so many readers can serve alongside one writer.
+//
+// Stored rows are private copies that are never modified: an update installs a new
+// array, so a reader holding a row always sees one whole version of the book. Ordered
+// reads (snapshot, rowAt) use an immutable snapshot of all rows, rebuilt on
+// the first read after a change; while a write is in progress readers get the previous
+// snapshot instead of waiting for it. Every write gets a new catalog-wide version number,
+// and replace() only writes when the book is still at the version the caller read.
+//
+// A Journal, when set, logs each change before it is applied; if logging fails the
+// change is dropped, so the catalog and every listener stay as they were.
+class BookCatalog {
+    interface Listener {
+        void bookAdded(String[] book);
+        void bookRemoved(String[] book);
+
+        default void bookUpdated(String[] old, String[] book) {
+            bookRemoved(old);
+            bookAdded(book);
+        }
+    }
+
+    interface Journal {
+        // Makes the change durable. Called with the monitor held, before anything changes.
+        void logPut(String[] book) throws IOException;
+        void logRemove(String id) throws IOException;
+
+        // Called once the logged change is applied and the listeners have seen it.
+        void applied();
+    }
+
+    static final int ID = 0, TITLE = 1, AUTHOR = 2, PUBLISHER = 3, YEAR = 4,
+                     ISBN = 5, COPIES = 6, CATEGORY = 7, FILE = 8;
+    static final int FIELDS = 9;
+
+    // A book together with the version it was written at. added is the version at which
+    // its ID was first inserted, so it orders books the same way as the slots do.
+    static final class Record {
+        final String[] book;
+        final long version;
+        final long added;
+
+        Record(String[] book, long version, long added) {
+            this.book = book;
+            this.version = version;
+            this.added = added;
+        }
+    }
+
+    private static final class Snapshot {
+        final List<String[]> rows;
+        final int modCount;
+
+        Snapshot(List<String[]> rows, int modCount) {
+            this.rows = rows;
+            this.modCount = modCount;
+        }
+    }
+
+    private final ArrayList<String[]> slots = new ArrayList<>();
+    private final HashMap<String, Integer> idIndex = new HashMap<>();
+    private final ConcurrentHashMap<String, Record> byId = new ConcurrentHashMap<>();
+    // Secondary index values are a single ID (String) or a LinkedHashSet<String> of IDs,
+    // so the common one-book-per-ISBN case costs no set per entry.
+    private final HashMap<String, Object> isbnIndex = new HashMap<>();
+    private final HashMap<String, Object> authorIndex = new HashMap<>();
+    private final HashMap<String, Object> categoryIndex = new HashMap<>();
+    private final ArrayList<Listener> listeners = new ArrayList<>();
+    private Journal journal;
+    private int dead;
+    private long lastVersion;
+    private volatile int modCount;
+    private volatile boolean writing;
+    private volatile Snapshot snapshot = new Snapshot(Collections.emptyList(), 0);
+
+    // Registers the listener and replays every current book to it as an add.
+    synchronized void addListener(Listener listener) {
+        addListener(listener, true);
+    }
+
+    synchronized void addListener(Listener listener, boolean replay) {
+        listeners.add(listener);
+        if (replay) forEach(listener::bookAdded);
+    }
+
+    synchronized void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // At most one; null removes it.
+    synchronized void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    // Inserts a copy of the book, or replaces the one with the same ID in place.
+    // Returns true when a new book was added, false when an existing one was updated.
+    synchronized boolean put(String[] book) {
+        writing = true;
+        try {
+            return store(book.clone());
+        } finally {
+            writing = false;
+        }
+    }
+
+    // Upserts a batch under a single lock acquisition. Returns how many were new.
+    synchronized int putAll(List<String[]> books) {
+        writing = true;
+        try {
+            int added = 0;
+            for (String[] book : books) {
+                if (store(book.clone())) added++;
+            }
+            return added;
+        } finally {
+            writing = false;
+        }
+    }
+
+    // Compare-and-set: writes the book only if the stored one with its ID is still at
+    // expectedVersion (0 = it must not exist yet). Returns false, changing nothing,
+    // when someone else wrote or deleted it in the meantime.
+    synchronized boolean replace(String[] book, long expectedVersion) {
+        if (version(book[ID]) != expectedVersion) return false;
+        put(book);
+        return true;
+    }
+
+    String[] get(String id) {
+        Record record = byId.get(id);
+        return record == null ? null : record.book;
+    }
+
+    // The book and its version read together, or null when there is no such book.
+    Record record(String id) {
+        return byId.get(id);
+    }
+
+    // Version of the stored book, or 0 when there is none.
+    long version(String id) {
+        Record record = byId.get(id);
+        return record == null ? 0 : record.version;
+    }
+
+    boolean contains(String id) {
+        return byId.containsKey(id);
+    }
+
+    synchronized String[] remove(String id) {
+        Integer slot = idIndex.get(id);
+        if (slot == null) return null;
+        writing = true;
+        try {
+            if (journal != null) {
+                try {
+                    journal.logRemove(id);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not log the removal of book " + id, e);
+                }
+            }
+            idIndex.remove(id);
+            String[] old = slots.set(slot, null);
+            byId.remove(id);
+            unindex(old);
+            dead++;
+            modCount++;
+            for (Listener l : listeners) l.bookRemoved(old);
+            if (dead > 1024 && dead > slots.size() / 2) compact();
+            if (journal != null) journal.applied();
+            return old;
+        } finally {
+            writing = false;
+        }
+    }
+
+    // Bumped on every add, update and delete.
+    int modCount() {
+        return modCount;
+    }
+
+    int size() {
+        return byId.size();
+    }
+
+    boolean isEmpty() {
+        return byId.isEmpty();
+    }
+
+    // All books in insertion order as an immutable list. Stays the same however the
+    // catalog changes afterwards; call again for a fresh one.
+    List<String[]> snapshot() {
+        Snapshot current = snapshot;
+        if (current.modCount == modCount || writing) return current.rows;
+        synchronized (this) {
+            current = snapshot;
+            if (current.modCount != modCount) {
+                String[][] rows = new String[idIndex.size()][];
+                int n = 0;
+                for (String[] book : slots) {
+                    if (book != null) rows[n++] = book;
+                }
+                current = new Snapshot(Collections.unmodifiableList(Arrays.asList(rows)), modCount);
+                snapshot = current;
+            }
+            return current.rows;
+        }
+    }
+
+    // Row in insertion order, as shown in the book table; null past the end (the catalog
+    // may have shrunk since the caller read size()).
+    String[] rowAt(int row) {
+        List<String[]> rows = snapshot();
+        return row < rows.size() ? rows.get(row) : null;
+    }
+
+    synchronized void forEach(Consumer<String[]> action) {
+        for (String[] book : slots) {
+            if (book != null) action.accept(book);
+        }
+    }
+
+    synchronized List<String[]> findByIsbn(String isbn) {
+        return lookup(isbnIndex, isbnKey(isbn));
+    }
+
+    synchronized List<String[]> findByAuthor(String author) {
+        return lookup(authorIndex, textKey(author));
+    }
+
+    synchronized List<String[]> findByCategory(String category) {
+        return lookup(categoryIndex, category);
+    }
+
+    synchronized void compact() {
+        if (dead == 0) return;
+        int write = 0;
+        for (int read = 0; read < slots.size(); read++) {
+            String[] book = slots.get(read);
+            if (book == null) continue;
+            slots.set(write, book);
+            idIndex.put(book[ID], write);
+            write++;
+        }
+        slots.subList(write, slots.size()).clear();
+        dead = 0;
+    }
+
+    private boolean store(String[] book) {
+        if (journal != null) {
+            try {
+                journal.logPut(book);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not log book " + book[ID], e);
+            }
+        }
+        long version = ++lastVersion;
+        Integer slot = idIndex.get(book[ID]);
+        if (slot != null) {
+            String[] old = slots.get(slot);
+            unindex(old);
+            slots.set(slot, book);
+            byId.put(book[ID], new Record(book, version, byId.get(book[ID]).added));
+            index(book);
+            modCount++;
+            for (Listener l : listeners) l.bookUpdated(old, book);
+            if (journal != null) journal.applied();
+            return false;
+        }
+        idIndex.put(book[ID], slots.size());
+        slots.add(book);
+        byId.put(book[ID], new Record(book, version, version));
+        index(book);
+        modCount++;
+        for (Listener l : listeners) l.bookAdded(book);
+        if (journal != null) journal.applied();
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String[]> lookup(Map<String, Object> index, String key) {
+        Object ids = key == null ? null : index.get(key);
+        if (ids == null) return Collections.emptyList();
+        if (ids instanceof String) return Collections.singletonList(get((String) ids));
+        LinkedHashSet<String> set = (LinkedHashSet<String>) ids;
+        List<String[]> result = new ArrayList<>(set.size());
+        for (String id : set) result.add(get(id));
+        return result;
+    }
+
+    private void index(String[] book) {
+        addTo(isbnIndex, isbnKey(book[ISBN]), book[ID]);
+        addTo(authorIndex, textKey(book[AUTHOR]), book[ID]);
+        addTo(categoryIndex, book[CATEGORY], book[ID]);
+    }
+
+    private void unindex(String[] book) {
+        removeFrom(isbnIndex, isbnKey(book[ISBN]), book[ID]);
+        removeFrom(authorIndex, textKey(book[AUTHOR]), book[ID]);
+        removeFrom(categoryIndex, book[CATEGORY], book[ID]);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void addTo(Map<String, Object> index, String key, String id) {
+        if (key == null) return;
+        Object ids = index.putIfAbsent(key, id);
+        if (ids == null || ids.equals(id)) return;
+        if (ids instanceof String) {
+            LinkedHashSet<String> set = new LinkedHashSet<>();
+            set.add((String) ids);
+            set.add(id);
+            index.put(key, set);
+        } else {
+            ((LinkedHashSet<String>) ids).add(id);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void removeFrom(Map<String, Object> index, String key, String id) {
+        if (key == null) return;
+        Object ids = index.get(key);
+        if (ids == null) return;
+        if (ids instanceof String) {
+            if (ids.equals(id)) index.remove(key);
+            return;
+        }
+        LinkedHashSet<String> set = (LinkedHashSet<String>) ids;
+        set.remove(id);
+        if (set.size() == 1) index.put(key, set.iterator().next());
+    }
+
+    static String isbnKey(String isbn) {
+        if (isbn == null) return null;
+        String key = isbn.replace("-", "").replace(" ", "");
+        return key.isEmpty() ? null : key;
+    }
+
+    static String textKey(String text) {
+        if (text == null) return null;
+        String key = text.trim().toLowerCase();
+        return key.isEmpty() ? null : key;
+    }
+}
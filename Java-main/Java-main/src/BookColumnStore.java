@@ -0,0 +1,192 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+// Column-oriented book storage. Year and copies are int columns, category, publisher
+// and author are dictionary-encoded (one String per distinct value plus an int code per
+// row), and ISBNs that are plain digits are packed into a long. Only ID, title and file
+// path stay as one String per row. Rows are read back through the Book view.
+class BookColumnStore {
+    // Distinct strings of one column, each stored once and referred to by code.
+    static class Dictionary {
+        private final HashMap<String, Integer> codes = new HashMap<>();
+        private final ArrayList<String> values = new ArrayList<>();
+
+        int encode(String value) {
+            Integer code = codes.get(value);
+            if (code != null) return code;
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+            return code;
+        }
+
+        String decode(int code) {
+            return values.get(code);
+        }
+
+        int size() {
+            return values.size();
+        }
+    }
+
+    // Read-only view of one row. Valid until that row is removed or overwritten.
+    class Book {
+        private final int row;
+
+        private Book(int row) {
+            this.row = row;
+        }
+
+        String id() { return ids[row]; }
+        String title() { return titles[row]; }
+        String author() { return authors.decode(authorCodes[row]); }
+        String publisher() { return publishers.decode(publisherCodes[row]); }
+        int year() { return years[row]; }
+        String isbn() { return unpackIsbn(row); }
+        int copies() { return copies[row]; }
+        String category() { return categories.decode(categoryCodes[row]); }
+        String file() { return files[row]; }
+
+        // Row in the String[9] layout used by BookCatalog and the table.
+        String[] toRow() {
+            return new String[] {
+                id(), title(), author(), publisher(), Integer.toString(year()),
+                isbn(), Integer.toString(copies()), category(), file()
+            };
+        }
+    }
+
+    private static final long UNPACKED = -1;
+
+    private final HashMap<String, Integer> rowsById = new HashMap<>();
+    private final Dictionary authors = new Dictionary();
+    private final Dictionary publishers = new Dictionary();
+    private final Dictionary categories = new Dictionary();
+    private final HashMap<Integer, String> isbnOverflow = new HashMap<>();
+    private String[] ids = new String[16];
+    private String[] titles = new String[16];
+    private String[] files = new String[16];
+    private int[] years = new int[16];
+    private int[] copies = new int[16];
+    private int[] authorCodes = new int[16];
+    private int[] publisherCodes = new int[16];
+    private int[] categoryCodes = new int[16];
+    private long[] isbns = new long[16];
+    private int size;
+
+    // Inserts or replaces the book with the row's ID. Year and copies must be numbers
+    // (see BookValidator); when they are not, NumberFormatException is thrown and the
+    // store is left as it was. Returns the row index.
+    int put(String[] book) {
+        // Every column is parsed and encoded before a row is taken or touched.
+        int year = Integer.parseInt(book[BookCatalog.YEAR].trim());
+        int copyCount = Integer.parseInt(book[BookCatalog.COPIES].trim());
+        long packed = packIsbn(book[BookCatalog.ISBN]);
+        int author = authors.encode(book[BookCatalog.AUTHOR]);
+        int publisher = publishers.encode(book[BookCatalog.PUBLISHER]);
+        int category = categories.encode(book[BookCatalog.CATEGORY]);
+
+        Integer existing = rowsById.get(book[BookCatalog.ID]);
+        int row;
+        if (existing != null) {
+            row = existing;
+        } else {
+            row = size;
+            if (row == ids.length) grow();
+            size++;
+            rowsById.put(book[BookCatalog.ID], row);
+        }
+        ids[row] = book[BookCatalog.ID];
+        titles[row] = book[BookCatalog.TITLE];
+        files[row] = book[BookCatalog.FILE];
+        years[row] = year;
+        copies[row] = copyCount;
+        authorCodes[row] = author;
+        publisherCodes[row] = publisher;
+        categoryCodes[row] = category;
+        isbnOverflow.remove(row);
+        isbns[row] = packed;
+        if (packed == UNPACKED) isbnOverflow.put(row, book[BookCatalog.ISBN]);
+        return row;
+    }
+
+    Book get(String id) {
+        Integer row = rowsById.get(id);
+        return row == null ? null : new Book(row);
+    }
+
+    Book get(int row) {
+        if (row < 0 || row >= size) throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        return new Book(row);
+    }
+
+    // Removes the book by moving the last row into its place, so row order is not kept.
+    boolean remove(String id) {
+        Integer row = rowsById.remove(id);
+        if (row == null) return false;
+        int last = --size;
+        isbnOverflow.remove(row);
+        if (row != last) {
+            ids[row] = ids[last];
+            titles[row] = titles[last];
+            files[row] = files[last];
+            years[row] = years[last];
+            copies[row] = copies[last];
+            authorCodes[row] = authorCodes[last];
+            publisherCodes[row] = publisherCodes[last];
+            categoryCodes[row] = categoryCodes[last];
+            isbns[row] = isbns[last];
+            String overflow = isbnOverflow.remove(last);
+            if (overflow != null) isbnOverflow.put(row, overflow);
+            rowsById.put(ids[row], row);
+        }
+        ids[last] = titles[last] = files[last] = null;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int distinctAuthors() {
+        return authors.size();
+    }
+
+    // Digits-only ISBNs of up to 17 digits (more would overflow the shift) become
+    // value << 5 | digit count, so leading zeros survive. Anything else (longer numbers,
+    // hyphens, an X check digit) is kept as a String.
+    static long packIsbn(String isbn) {
+        if (isbn == null || isbn.isEmpty() || isbn.length() > 17) return UNPACKED;
+        long value = 0;
+        for (int i = 0; i < isbn.length(); i++) {
+            char c = isbn.charAt(i);
+            if (c < '0' || c > '9') return UNPACKED;
+            value = value * 10 + (c - '0');
+        }
+        return value << 5 | isbn.length();
+    }
+
+    private String unpackIsbn(int row) {
+        long packed = isbns[row];
+        if (packed == UNPACKED) return isbnOverflow.get(row);
+        int digits = (int) (packed & 31);
+        String value = Long.toString(packed >>> 5);
+        StringBuilder sb = new StringBuilder(digits);
+        for (int i = value.length(); i < digits; i++) sb.append('0');
+        return sb.append(value).toString();
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        titles = Arrays.copyOf(titles, capacity);
+        files = Arrays.copyOf(files, capacity);
+        years = Arrays.copyOf(years, capacity);
+        copies = Arrays.copyOf(copies, capacity);
+        authorCodes = Arrays.copyOf(authorCodes, capacity);
+        publisherCodes = Arrays.copyOf(publisherCodes, capacity);
+        categoryCodes = Arrays.copyOf(categoryCodes, capacity);
+        isbns = Arrays.copyOf(isbns, capacity);
+    }
+}
@@ -0,0 +1,53 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+// Streaming export of the catalog to CSV or JSON, written straight to the file. All
+// rows come from one snapshot taken when the export starts, so books added or removed
+// meanwhile are neither skipped nor written twice.
+class BookExporter {
+    // Format is picked from the extension (.json, anything else is CSV). Returns rows written.
+    static long exportFile(BookCatalog catalog, Path file, String[] labels) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            if (file.getFileName().toString().toLowerCase().endsWith(".json")) return writeJson(catalog, out);
+            return writeCsv(catalog, out, labels);
+        }
+    }
+
+    static long writeCsv(BookCatalog catalog, Writer out, String[] labels) throws IOException {
+        writeCsvRecord(out, labels);
+        List<String[]> rows = catalog.snapshot();
+        for (String[] row : rows) writeCsvRecord(out, row);
+        return rows.size();
+    }
+
+    static long writeJson(BookCatalog catalog, Writer out) throws IOException {
+        out.write('[');
+        List<String[]> rows = catalog.snapshot();
+        for (int i = 0; i < rows.size(); i++) {
+            out.write(i == 0 ? "\n" : ",\n");
+            BookJson.writeBook(out, rows.get(i));
+        }
+        out.write("\n]\n");
+        return rows.size();
+    }
+
+    private static void writeCsvRecord(Writer out, String[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) out.write(',');
+            String value = values[i] == null ? "" : values[i];
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                out.write('"');
+                out.write(value.replace("\"", "\"\""));
+                out.write('"');
+            } else {
+                out.write(value);
+            }
+        }
+        out.write('\n');
+    }
+}
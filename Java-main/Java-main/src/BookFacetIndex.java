@@ -0,0 +1,174 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+// Facet aggregates for the book list: category, author, publisher and publication
+// decade. Every book gets a small document number; each facet value has a bitmap
+// posting list over those numbers and a running count, both maintained from
+// BookCatalog events. Selecting values intersects bitmaps; counts inside a selection
+// are tallied from the selected documents only. Guarded by the catalog monitor.
+class BookFacetIndex implements BookCatalog.Listener {
+    static final int CATEGORY = 0, AUTHOR = 1, PUBLISHER = 2, DECADE = 3;
+    static final String[] DIMENSIONS = { "Category", "Author", "Publisher", "Decade" };
+    private static final int[] FIELDS = { BookCatalog.CATEGORY, BookCatalog.AUTHOR, BookCatalog.PUBLISHER, BookCatalog.YEAR };
+
+    private static class Dimension {
+        final HashMap<String, Integer> ids = new HashMap<>();
+        final ArrayList<String> values = new ArrayList<>();
+        final ArrayList<BitSet> postings = new ArrayList<>();
+        int[] counts = new int[16];
+        int[] docValue = new int[1024];
+
+        int intern(String value) {
+            Integer id = ids.get(value);
+            if (id != null) return id;
+            id = values.size();
+            ids.put(value, id);
+            values.add(value);
+            postings.add(new BitSet());
+            if (id == counts.length) counts = Arrays.copyOf(counts, id * 2);
+            return id;
+        }
+    }
+
+    private final BookCatalog catalog;
+    private final Dimension[] dimensions = new Dimension[DIMENSIONS.length];
+    private final HashMap<String, Integer> docs = new HashMap<>();
+    private String[] docIds = new String[1024];
+    private final BitSet live = new BitSet();
+    private final BitSet free = new BitSet();
+
+    BookFacetIndex(BookCatalog catalog) {
+        this.catalog = catalog;
+        for (int d = 0; d < dimensions.length; d++) dimensions[d] = new Dimension();
+        catalog.addListener(this);
+    }
+
+    @Override
+    public void bookAdded(String[] book) {
+        int doc = free.nextSetBit(0);
+        if (doc < 0) {
+            doc = live.length();
+        } else {
+            free.clear(doc);
+        }
+        if (doc >= docIds.length) docIds = Arrays.copyOf(docIds, doc * 2);
+        docIds[doc] = book[BookCatalog.ID];
+        docs.put(book[BookCatalog.ID], doc);
+        live.set(doc);
+        for (int d = 0; d < dimensions.length; d++) {
+            Dimension dim = dimensions[d];
+            int value = dim.intern(valueOf(d, book));
+            if (doc >= dim.docValue.length) dim.docValue = Arrays.copyOf(dim.docValue, doc * 2);
+            dim.docValue[doc] = value;
+            dim.postings.get(value).set(doc);
+            dim.counts[value]++;
+        }
+    }
+
+    @Override
+    public void bookRemoved(String[] book) {
+        Integer doc = docs.remove(book[BookCatalog.ID]);
+        if (doc == null) return;
+        for (Dimension dim : dimensions) {
+            int value = dim.docValue[doc];
+            dim.postings.get(value).clear(doc);
+            dim.counts[value]--;
+        }
+        docIds[doc] = null;
+        live.clear(doc);
+        free.set(doc);
+    }
+
+    // Documents matching every selected value (selected[d] == null means any),
+    // or null when nothing is selected.
+    BitSet select(String[] selected) {
+        synchronized (catalog) {
+            BitSet result = null;
+            for (int d = 0; d < dimensions.length; d++) {
+                if (selected[d] == null) continue;
+                Integer value = dimensions[d].ids.get(selected[d]);
+                if (value == null) return new BitSet();
+                if (result == null) result = (BitSet) dimensions[d].postings.get(value).clone();
+                else result.and(dimensions[d].postings.get(value));
+            }
+            return result;
+        }
+    }
+
+    // The largest facet values of the dimension with their counts, inside the selection
+    // (or over the whole catalog when selection is null), biggest first.
+    Map<String, Integer> counts(int dimension, BitSet selection, int limit) {
+        synchronized (catalog) {
+            Dimension dim = dimensions[dimension];
+            int[] counts;
+            if (selection == null) {
+                counts = dim.counts;
+            } else {
+                counts = new int[dim.values.size()];
+                for (int doc = selection.nextSetBit(0); doc >= 0; doc = selection.nextSetBit(doc + 1)) {
+                    counts[dim.docValue[doc]]++;
+                }
+            }
+            PriorityQueue<Integer> top = new PriorityQueue<>((a, b) -> Integer.compare(counts[a], counts[b]));
+            for (int value = 0; value < dim.values.size(); value++) {
+                if (counts[value] == 0) continue;
+                top.add(value);
+                if (top.size() > limit) top.poll();
+            }
+            ArrayList<Integer> ordered = new ArrayList<>(top);
+            ordered.sort((a, b) -> counts[b] != counts[a] ? Integer.compare(counts[b], counts[a])
+                : dim.values.get(a).compareTo(dim.values.get(b)));
+            Map<String, Integer> result = new LinkedHashMap<>();
+            for (int value : ordered) result.put(dim.values.get(value), counts[value]);
+            return result;
+        }
+    }
+
+    // The books that are inside the selection, keeping their order.
+    List<String[]> filter(List<String[]> books, BitSet selection) {
+        synchronized (catalog) {
+            List<String[]> result = new ArrayList<>();
+            for (String[] book : books) {
+                Integer doc = docs.get(book[BookCatalog.ID]);
+                if (doc != null && selection.get(doc)) result.add(book);
+            }
+            return result;
+        }
+    }
+
+    // Books in the selection, in catalog order.
+    List<String[]> books(BitSet selection) {
+        synchronized (catalog) {
+            List<BookCatalog.Record> found = new ArrayList<>(selection.cardinality());
+            for (int doc = selection.nextSetBit(0); doc >= 0; doc = selection.nextSetBit(doc + 1)) {
+                BookCatalog.Record record = catalog.record(docIds[doc]);
+                if (record != null) found.add(record);
+            }
+            found.sort(Comparator.comparingLong(r -> r.added));
+            List<String[]> result = new ArrayList<>(found.size());
+            for (BookCatalog.Record record : found) result.add(record.book);
+            return result;
+        }
+    }
+
+    // Facet value of a book; years are bucketed into decades.
+    static String valueOf(int dimension, String[] book) {
+        String value = book[FIELDS[dimension]];
+        if (dimension == DECADE) {
+            try {
+                int year = Integer.parseInt(value.trim());
+                return (year / 10 * 10) + "s";
+            } catch (RuntimeException e) {
+                return "Unknown";
+            }
+        }
+        return value == null || value.trim().isEmpty() ? "Unknown" : value.trim();
+    }
+}
@@ -0,0 +1,102 @@
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+// Facet filter panel for the book list window: one drop-down per facet dimension
+// showing the values with their counts inside the current selection.
+class BookFacetPanel extends JPanel {
+    private static final int VALUES_SHOWN = 200;
+
+    private static class Item {
+        final String value;
+        final String label;
+
+        Item(String value, String label) {
+            this.value = value;
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private final BookFacetIndex facets;
+    private Runnable onChange = () -> { };
+    private final List<JComboBox<Item>> combos = new ArrayList<>();
+    private final String[] selected = new String[BookFacetIndex.DIMENSIONS.length];
+    private volatile BitSet selection;
+    private boolean updating;
+
+    BookFacetPanel(BookFacetIndex facets) {
+        super(new GridLayout(BookFacetIndex.DIMENSIONS.length * 2, 1, 4, 4));
+        this.facets = facets;
+        setBorder(BorderFactory.createCompoundBorder(
+            BorderFactory.createTitledBorder("Filter"),
+            new EmptyBorder(5, 5, 5, 5)
+        ));
+        for (int d = 0; d < BookFacetIndex.DIMENSIONS.length; d++) {
+            JLabel label = new JLabel(BookFacetIndex.DIMENSIONS[d] + ":");
+            label.setFont(new Font("Segoe UI", Font.BOLD, 13));
+            add(label);
+            int dimension = d;
+            JComboBox<Item> combo = new JComboBox<>();
+            combo.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+            combo.setPrototypeDisplayValue(new Item(null, "XXXXXXXXXXXXXXXXXXXXXX"));
+            combo.addActionListener(e -> {
+                if (updating) return;
+                Item item = (Item) combo.getSelectedItem();
+                selected[dimension] = item == null ? null : item.value;
+                refresh();
+                onChange.run();
+            });
+            combos.add(combo);
+            add(combo);
+        }
+        refresh();
+    }
+
+    // Runs on the EDT after the user picks a facet value.
+    void setOnChange(Runnable onChange) {
+        this.onChange = onChange;
+    }
+
+    // Books matching the chosen facet values, or null when no facet is chosen.
+    BitSet selection() {
+        return selection;
+    }
+
+    // Recomputes the selection and the counts shown in every drop-down.
+    void refresh() {
+        BitSet current = facets.select(selected);
+        selection = current;
+        updating = true;
+        try {
+            for (int d = 0; d < combos.size(); d++) {
+                Map<String, Integer> counts = facets.counts(d, current, VALUES_SHOWN);
+                DefaultComboBoxModel<Item> model = new DefaultComboBoxModel<>();
+                int total = current == null ? -1 : current.cardinality();
+                model.addElement(new Item(null, total < 0 ? "All" : "All (" + total + ")"));
+                Item chosen = null;
+                for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                    Item item = new Item(entry.getKey(), entry.getKey() + " (" + entry.getValue() + ")");
+                    model.addElement(item);
+                    if (entry.getKey().equals(selected[d])) chosen = item;
+                }
+                if (selected[d] != null && chosen == null) {
+                    chosen = new Item(selected[d], selected[d] + " (0)");
+                    model.addElement(chosen);
+                }
+                if (chosen != null) model.setSelectedItem(chosen);
+                combos.get(d).setModel(model);
+            }
+        } finally {
+            updating = false;
+        }
+    }
+}
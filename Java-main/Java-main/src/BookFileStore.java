@@ -0,0 +1,106 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+// Managed store for uploaded book files. Files are kept under the SHA-256 of their
+// content (files/ab/abcd....pdf), so the same PDF uploaded for several editions is
+// stored once. Each upload is hashed while it is copied to a temporary file, which is
+// then renamed to its hash. Hashes of source files are cached by path, size and
+// modification time, so a file already stored is not copied again, and the
+// hash-to-file index is built once from the store directory.
+class BookFileStore {
+    static final long MAX_SIZE = 50L * 1024 * 1024;
+
+    static class TooLargeException extends IOException {
+        TooLargeException() {
+            super("File size must be less than 50 MB.");
+        }
+    }
+
+    private final Path root;
+    private final ConcurrentHashMap<String, Path> index = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> hashCache = new ConcurrentHashMap<>();
+
+    BookFileStore(Path root) throws IOException {
+        this.root = root;
+        Files.createDirectories(root);
+        try (Stream<Path> files = Files.walk(root, 2)) {
+            files.filter(Files::isRegularFile).forEach(file -> {
+                String name = file.getFileName().toString();
+                int dot = name.indexOf('.');
+                if (dot == 64) index.put(name.substring(0, dot), file);
+            });
+        }
+    }
+
+    // Copies the file into the store unless identical content is already there, and
+    // returns the stored path. The content is hashed as it is copied, so the stored file
+    // matches its name even if the source changes meanwhile. Fails with
+    // TooLargeException past MAX_SIZE.
+    Path store(Path source) throws IOException {
+        String key = cacheKey(source);
+        String known = hashCache.get(key);
+        if (known != null) {
+            Path existing = index.get(known);
+            if (existing != null && Files.exists(existing)) return existing;
+        }
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        Path tmp = Files.createTempFile(root, "upload", ".tmp");
+        try {
+            try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                ByteBuffer buf = ByteBuffer.allocateDirect(1 << 16);
+                long total = 0;
+                while (in.read(buf) != -1) {
+                    buf.flip();
+                    total += buf.remaining();
+                    if (total > MAX_SIZE) throw new TooLargeException();
+                    digest.update(buf.duplicate());
+                    while (buf.hasRemaining()) out.write(buf);
+                    buf.clear();
+                }
+                out.force(true);
+            }
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : digest.digest()) hex.append(String.format("%02x", b));
+            String hash = hex.toString();
+            // Only cached when the source looks the same as before the copy.
+            if (key.equals(cacheKey(source))) hashCache.put(key, hash);
+
+            Path existing = index.get(hash);
+            if (existing != null && Files.exists(existing)) return existing;
+            Path target = root.resolve(hash.substring(0, 2)).resolve(hash + extension(source));
+            Files.createDirectories(target.getParent());
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            index.put(hash, target);
+            return target;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    // Hashes are cached by path, size and modification time.
+    private static String cacheKey(Path file) throws IOException {
+        return file.toAbsolutePath() + "|" + Files.size(file) + "|" + Files.getLastModifiedTime(file).toMillis();
+    }
+
+    private static String extension(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(dot);
+    }
+}
@@ -0,0 +1,59 @@
+import java.util.ArrayList;
+
+// Compares the retained heap of the ArrayList<String[]> book representation with
+// BookColumnStore for the same generated catalog.
+// Usage: java BookHeapBenchmark [rows]   (default 500000; run with a fixed -Xmx)
+public class BookHeapBenchmark {
+    private static final String[] CATEGORIES = {
+        "Philosophy", "Sports", "Science", "Literature", "History", "Technology"
+    };
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+
+        long base = usedHeap();
+        ArrayList<String[]> list = new ArrayList<>();
+        for (int i = 0; i < rows; i++) list.add(generate(i));
+        long listBytes = usedHeap() - base;
+        System.out.printf("ArrayList<String[]>: %,d rows, %,d bytes, %.1f bytes/row%n",
+            list.size(), listBytes, (double) listBytes / rows);
+        list = null;
+
+        base = usedHeap();
+        BookColumnStore store = new BookColumnStore();
+        for (int i = 0; i < rows; i++) store.put(generate(i));
+        long storeBytes = usedHeap() - base;
+        System.out.printf("BookColumnStore:     %,d rows, %,d bytes, %.1f bytes/row (%,d distinct authors)%n",
+            store.size(), storeBytes, (double) storeBytes / rows, store.distinctAuthors());
+        System.out.printf("Saving: %.1f%%%n", 100.0 * (listBytes - storeBytes) / listBytes);
+    }
+
+    // A row as the form or the importer would produce it: fresh String objects, with
+    // authors, publishers and categories drawn from small pools.
+    static String[] generate(int i) {
+        return new String[] {
+            "B" + i,
+            "Title of book number " + i,
+            new String("Author " + ((long) i * 7919 % 20_000)),
+            new String("Publisher " + (i % 500)),
+            Integer.toString(1900 + i % 125),
+            Long.toString(9_780_000_000_000L + i),
+            Integer.toString(1 + i % 10),
+            new String(CATEGORIES[i % CATEGORIES.length]),
+            ""
+        };
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,225 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+// Streaming bulk import of CSV or JSON files into a BookCatalog. Rows are read in
+// chunks, validated in parallel with the same rules as the entry form, and each chunk
+// of valid rows is inserted into the catalog in one batch.
+class BookImporter {
+    static final int CHUNK = 10_000;
+    private static final int MAX_ERRORS = 100;
+
+    interface Progress {
+        void update(long read, long imported, long rejected, double rowsPerSecond);
+    }
+
+    static class Result {
+        long read, imported, rejected, millis;
+        final List<String> errors = new ArrayList<>();
+        final Set<String> categories = new LinkedHashSet<>();
+
+        double rowsPerSecond() {
+            return millis == 0 ? read : read * 1000.0 / millis;
+        }
+    }
+
+    private final Consumer<List<String[]>> sink;
+    private final String[] labels;
+
+    BookImporter(BookCatalog catalog, String[] labels) {
+        this(catalog::putAll, labels);
+    }
+
+    // Hands each chunk of valid rows to the sink instead of a local catalog, e.g. to
+    // upload them to a LibraryServer.
+    BookImporter(Consumer<List<String[]>> sink, String[] labels) {
+        this.sink = sink;
+        this.labels = labels;
+    }
+
+    Result importFile(Path file, Progress progress) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (file.getFileName().toString().toLowerCase().endsWith(".json")) return importJson(in, progress);
+            return importCsv(in, progress);
+        }
+    }
+
+    Result importCsv(Reader in, Progress progress) throws IOException {
+        CsvReader csv = new CsvReader(in);
+        Batch batch = new Batch(progress);
+        List<String> first = csv.next();
+        if (first == null) return batch.finish();
+        int[] columns = headerColumns(first);
+        if (columns == null) batch.add(toBook(first, null));
+        else batch.firstRow = 2;
+        List<String> record;
+        while ((record = csv.next()) != null) {
+            if (record.size() == 1 && record.get(0).isEmpty()) continue;
+            batch.add(toBook(record, columns));
+        }
+        return batch.finish();
+    }
+
+    Result importJson(Reader in, Progress progress) throws IOException {
+        BookJson.ObjectReader json = new BookJson.ObjectReader(in);
+        Batch batch = new Batch(progress);
+        Map<String, String> object;
+        while ((object = json.next()) != null) {
+            batch.add(BookJson.toBook(object, labels));
+        }
+        return batch.finish();
+    }
+
+    // Column position of each book field when the first record is a header, else null.
+    private int[] headerColumns(List<String> first) {
+        int[] columns = new int[BookCatalog.FIELDS];
+        boolean header = false;
+        for (int f = 0; f < columns.length; f++) {
+            columns[f] = -1;
+            for (int c = 0; c < first.size(); c++) {
+                String name = first.get(c).trim();
+                if (name.equalsIgnoreCase(labels[f]) || name.equalsIgnoreCase(BookJson.KEYS[f])) {
+                    columns[f] = c;
+                    header = true;
+                }
+            }
+        }
+        return header ? columns : null;
+    }
+
+    private static String[] toBook(List<String> record, int[] columns) {
+        String[] book = new String[BookCatalog.FIELDS];
+        for (int f = 0; f < book.length; f++) {
+            int c = columns == null ? f : columns[f];
+            book[f] = c >= 0 && c < record.size() ? record.get(c) : "";
+        }
+        return book;
+    }
+
+    private class Batch {
+        private final Progress progress;
+        private final Result result = new Result();
+        private final long start = System.nanoTime();
+        private List<String[]> chunk = new ArrayList<>(CHUNK);
+        int firstRow = 1;   // row number of the first book, counting a header line
+
+        Batch(Progress progress) {
+            this.progress = progress;
+        }
+
+        void add(String[] book) {
+            chunk.add(book);
+            if (chunk.size() == CHUNK) flush();
+        }
+
+        Result finish() {
+            flush();
+            result.millis = (System.nanoTime() - start) / 1_000_000;
+            return result;
+        }
+
+        private void flush() {
+            if (chunk.isEmpty()) return;
+            List<String[]> books = chunk;
+            int[] invalid = new int[books.size()];
+            IntStream.range(0, books.size()).parallel()
+                .forEach(i -> invalid[i] = BookValidator.firstInvalid(books.get(i)));
+            List<String[]> valid = new ArrayList<>(books.size());
+            for (int i = 0; i < books.size(); i++) {
+                String[] book = books.get(i);
+                if (invalid[i] == -1) {
+                    valid.add(book);
+                    result.categories.add(book[BookCatalog.CATEGORY]);
+                } else {
+                    result.rejected++;
+                    if (result.errors.size() < MAX_ERRORS) {
+                        result.errors.add("Row " + (result.read + i + firstRow) + ": "
+                            + BookValidator.describe(book, invalid[i], labels));
+                    }
+                }
+            }
+            sink.accept(valid);
+            result.imported += valid.size();
+            result.read += books.size();
+            chunk = new ArrayList<>(CHUNK);
+            if (progress != null) {
+                double seconds = (System.nanoTime() - start) / 1e9;
+                progress.update(result.read, result.imported, result.rejected, result.read / Math.max(seconds, 1e-9));
+            }
+        }
+    }
+
+    // RFC 4180 style CSV: quoted fields may contain commas, quotes ("") and newlines.
+    static class CsvReader {
+        private final Reader in;
+        private final char[] buf = new char[1 << 16];
+        private int pos, len;
+
+        CsvReader(Reader in) {
+            this.in = in;
+        }
+
+        // Next record, or null at the end of the input.
+        List<String> next() throws IOException {
+            int c = read();
+            if (c == -1) return null;
+            List<String> record = new ArrayList<>(BookCatalog.FIELDS);
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) throw new IOException("Unterminated quoted CSV field");
+                    if (c == '"') {
+                        c = read();
+                        if (c == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            continue;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    record.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == -1) {
+                    break;
+                } else if (c == '\r') {
+                    c = read();
+                    if (c != '\n' && c != -1) pos--;
+                    break;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+            record.add(field.toString());
+            return record;
+        }
+
+        private int read() throws IOException {
+            if (pos == len) {
+                len = in.read(buf, 0, buf.length);
+                pos = 0;
+                if (len <= 0) {
+                    len = 0;
+                    return -1;
+                }
+            }
+            return buf[pos++];
+        }
+    }
+}
@@ -0,0 +1,199 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Minimal JSON support for book rows: writes a book as a flat object and reads flat
+// objects one at a time from a stream, so large files never sit in memory whole.
+class BookJson {
+    static final String[] KEYS = {
+        "id", "title", "author", "publisher", "year", "isbn", "copies", "category", "file"
+    };
+
+    static void writeBook(Appendable out, String[] book) throws IOException {
+        out.append('{');
+        for (int i = 0; i < KEYS.length; i++) {
+            if (i > 0) out.append(',');
+            writeString(out, KEYS[i]);
+            out.append(':');
+            writeString(out, book[i] == null ? "" : book[i]);
+        }
+        out.append('}');
+    }
+
+    static String toJson(String[] book) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            writeBook(sb, book);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return sb.toString();
+    }
+
+    static void writeString(Appendable out, String value) throws IOException {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) out.append(String.format("\\u%04x", (int) c));
+                    else out.append(c);
+            }
+        }
+        out.append('"');
+    }
+
+    // Book row from a parsed object; keys may be the short KEYS or the form labels.
+    static String[] toBook(Map<String, String> object, String[] labels) {
+        String[] book = new String[BookCatalog.FIELDS];
+        for (int i = 0; i < book.length; i++) {
+            String value = object.get(KEYS[i]);
+            if (value == null) value = object.get(labels[i]);
+            book[i] = value == null ? "" : value;
+        }
+        return book;
+    }
+
+    // Streams the objects of a top-level array (or a single top-level object).
+    // Values may be strings, numbers, booleans or null; nested values are rejected.
+    static class ObjectReader {
+        private final Reader in;
+        private int peeked = -2;
+        private boolean started, finished;
+
+        ObjectReader(Reader in) {
+            this.in = in;
+        }
+
+        // Next object, or null at the end of the input.
+        Map<String, String> next() throws IOException {
+            if (finished) return null;
+            int c = skipSpace();
+            if (!started) {
+                started = true;
+                if (c == '[') {
+                    c = skipSpace();
+                    if (c == ']') {
+                        finished = true;
+                        return null;
+                    }
+                } else {
+                    finished = true;
+                    if (c == -1) return null;
+                    unread(c);
+                    return readObject();
+                }
+            } else {
+                if (c == ']' || c == -1) {
+                    finished = true;
+                    return null;
+                }
+                if (c != ',') throw error("Expected ',' between objects");
+                c = skipSpace();
+            }
+            unread(c);
+            return readObject();
+        }
+
+        Map<String, String> readObject() throws IOException {
+            if (skipSpace() != '{') throw error("Expected '{'");
+            Map<String, String> object = new LinkedHashMap<>();
+            int c = skipSpace();
+            if (c == '}') return object;
+            unread(c);
+            while (true) {
+                if (skipSpace() != '"') throw error("Expected a key");
+                String key = readString();
+                if (skipSpace() != ':') throw error("Expected ':'");
+                object.put(key, readValue());
+                c = skipSpace();
+                if (c == '}') return object;
+                if (c != ',') throw error("Expected ',' or '}'");
+            }
+        }
+
+        private String readValue() throws IOException {
+            int c = skipSpace();
+            if (c == '"') return readString();
+            if (c == '{' || c == '[') throw error("Nested values are not supported");
+            StringBuilder sb = new StringBuilder();
+            while (c != -1 && c != ',' && c != '}' && c != ']' && !Character.isWhitespace(c)) {
+                sb.append((char) c);
+                c = read();
+            }
+            unread(c);
+            String literal = sb.toString();
+            if (literal.isEmpty()) throw error("Expected a value");
+            return literal.equals("null") ? null : literal;
+        }
+
+        private String readString() throws IOException {
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                int c = read();
+                if (c == -1) throw error("Unterminated string");
+                if (c == '"') return sb.toString();
+                if (c != '\\') {
+                    sb.append((char) c);
+                    continue;
+                }
+                c = read();
+                switch (c) {
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'u':
+                        char[] hex = new char[4];
+                        for (int i = 0; i < 4; i++) hex[i] = (char) read();
+                        try {
+                            sb.append((char) Integer.parseInt(new String(hex), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("Bad unicode escape");
+                        }
+                        break;
+                    default: sb.append((char) c);
+                }
+            }
+        }
+
+        private int skipSpace() throws IOException {
+            int c;
+            do {
+                c = read();
+            } while (c != -1 && Character.isWhitespace(c));
+            return c;
+        }
+
+        private int read() throws IOException {
+            if (peeked != -2) {
+                int c = peeked;
+                peeked = -2;
+                return c;
+            }
+            return in.read();
+        }
+
+        private void unread(int c) {
+            peeked = c;
+        }
+
+        private SyntaxException error(String message) {
+            return new SyntaxException("Invalid JSON: " + message);
+        }
+    }
+
+    // Input that is not the JSON ObjectReader expects, as opposed to a failed read.
+    static class SyntaxException extends IOException {
+        SyntaxException(String message) {
+            super(message);
+        }
+    }
+}
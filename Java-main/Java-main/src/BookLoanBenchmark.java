@@ -0,0 +1,107 @@
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Contention benchmark for BookLoanEngine: 1, 2, 4 ... threads check out and return
+// copies of a small set of hot titles as fast as they can. Each step is also run
+// against a single-lock baseline (one synchronized map of counters, the way a plain
+// port of VideoStore would work), and both are checked for lost updates afterwards.
+// Usage: java BookLoanBenchmark [titles] [secondsPerStep] [maxThreads]
+public class BookLoanBenchmark {
+    interface Shelf {
+        long checkOut(String bookId);      // loan ID, or -1 when no copy is available
+        void giveBack(long loanId);
+    }
+
+    // Baseline: every checkout and return takes one global lock.
+    static class LockedShelf implements Shelf {
+        private final HashMap<String, Integer> available = new HashMap<>();
+        private final HashMap<Long, String> loans = new HashMap<>();
+        private long nextId;
+
+        LockedShelf(int titles, int copies) {
+            for (int i = 0; i < titles; i++) available.put("B" + i, copies);
+        }
+
+        public synchronized long checkOut(String bookId) {
+            int n = available.get(bookId);
+            if (n == 0) return -1;
+            available.put(bookId, n - 1);
+            loans.put(++nextId, bookId);
+            return nextId;
+        }
+
+        public synchronized void giveBack(long loanId) {
+            String bookId = loans.remove(loanId);
+            available.merge(bookId, 1, Integer::sum);
+        }
+
+        synchronized int available(String bookId) {
+            return available.get(bookId);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int titleCount = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : 32;
+        int copies = 4;
+
+        System.out.printf("%d hot titles, %d copies each, %d s per step%n", titleCount, copies, seconds);
+        System.out.println("threads   engine ops/s   locked ops/s   lost updates");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            BookCatalog catalog = new BookCatalog();
+            for (int i = 0; i < titleCount; i++) {
+                String[] book = BookHeapBenchmark.generate(i);
+                book[BookCatalog.COPIES] = Integer.toString(copies);
+                catalog.put(book);
+            }
+            BookLoanEngine engine = new BookLoanEngine(catalog, 14);
+            long engineOps = run(threads, seconds, titleCount, new Shelf() {
+                public long checkOut(String bookId) {
+                    BookLoanEngine.Loan loan = engine.checkOut(bookId, "reader");
+                    return loan == null ? -1 : loan.id;
+                }
+
+                public void giveBack(long loanId) {
+                    engine.returnLoan(loanId);
+                }
+            });
+            LockedShelf locked = new LockedShelf(titleCount, copies);
+            long lockedOps = run(threads, seconds, titleCount, locked);
+
+            int lost = engine.activeLoans();
+            for (int i = 0; i < titleCount; i++) {
+                lost += Math.abs(engine.available("B" + i) - copies) + Math.abs(locked.available("B" + i) - copies);
+            }
+            System.out.printf("%7d %14.0f %14.0f %14d%n", threads,
+                (double) engineOps / seconds, (double) lockedOps / seconds, lost);
+        }
+    }
+
+    // Each operation is one checkout attempt, plus a return when it succeeded.
+    private static long run(int threads, int seconds, int titleCount, Shelf shelf) throws InterruptedException {
+        AtomicLong ops = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(threads);
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long[] held = new long[2];
+                long n = 0;
+                while (System.nanoTime() < end) {
+                    for (int i = 0; i < held.length; i++) held[i] = shelf.checkOut("B" + random.nextInt(titleCount));
+                    for (long loanId : held) {
+                        if (loanId != -1) shelf.giveBack(loanId);
+                    }
+                    n += held.length;
+                }
+                ops.addAndGet(n);
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        return ops.get();
+    }
+}
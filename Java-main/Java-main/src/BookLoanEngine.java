@@ -0,0 +1,242 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+// Loans of book copies. Each title has an atomic count of available copies, so
+// checkouts and returns on different (or the same) titles never take a lock; the
+// count follows "Number of Copies" through catalog events. Active loans are kept in
+// due-date order for overdue sweeps. A borrower who finds no copy can join the title's
+// waitlist; a returned copy goes straight to the first borrower waiting for it. Each
+// wait is its own ticket in the queue, so a borrower waiting twice holds two places.
+// A loan remembers the title it was lent from: once its book is removed, returning it
+// still ends the loan but puts no copy back, even if a book with the same ID was added
+// again since.
+class BookLoanEngine implements BookCatalog.Listener {
+    static final int DEFAULT_LOAN_DAYS = 14;
+    static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    static final class Loan implements Comparable<Loan> {
+        final long id;
+        final String bookId;
+        final String borrower;
+        final long due;       // epoch millis
+        private final Title title;   // lent from; null for a loan read from JSON
+
+        Loan(long id, String bookId, String borrower, long due) {
+            this(id, bookId, borrower, due, null);
+        }
+
+        private Loan(long id, String bookId, String borrower, long due, Title title) {
+            this.id = id;
+            this.bookId = bookId;
+            this.borrower = borrower;
+            this.due = due;
+            this.title = title;
+        }
+
+        String toJson() {
+            StringBuilder sb = new StringBuilder("{\"id\":\"").append(id).append("\",\"book\":");
+            try {
+                BookJson.writeString(sb, bookId);
+                sb.append(",\"borrower\":");
+                BookJson.writeString(sb, borrower);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return sb.append(",\"due\":\"").append(due).append("\"}").toString();
+        }
+
+        static Loan fromJson(Map<String, String> object) {
+            return new Loan(Long.parseLong(object.get("id")), object.get("book"), object.get("borrower"),
+                Long.parseLong(object.get("due")));
+        }
+
+        @Override
+        public int compareTo(Loan other) {
+            int byDue = Long.compare(due, other.due);
+            return byDue != 0 ? byDue : Long.compare(id, other.id);
+        }
+    }
+
+    // One place on a waitlist. Compared by identity, so removing a ticket never takes
+    // another waiter's place.
+    private static final class Ticket {
+        final String borrower;
+
+        Ticket(String borrower) {
+            this.borrower = borrower;
+        }
+    }
+
+    private static final class Title {
+        final AtomicInteger available = new AtomicInteger();
+        final ConcurrentLinkedQueue<Ticket> waitlist = new ConcurrentLinkedQueue<>();
+        volatile int total;
+    }
+
+    private final ConcurrentHashMap<String, Title> titles = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Loan> active = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Loan> byDue = new ConcurrentSkipListSet<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final long loanMillis;
+    private volatile Consumer<Loan> onHandover = loan -> { };
+    private volatile BiConsumer<String, List<String>> onWaitCancelled = (bookId, borrowers) -> { };
+
+    BookLoanEngine(BookCatalog catalog, int loanDays) {
+        this.loanMillis = loanDays * DAY_MILLIS;
+        catalog.addListener(this);
+    }
+
+    // Called, on the returning thread, when a returned copy is lent to a waiting borrower.
+    void setOnHandover(Consumer<Loan> onHandover) {
+        this.onHandover = onHandover;
+    }
+
+    // Called, on the removing thread, with the borrowers still waiting for a book when it
+    // is removed from the catalog; they are off the waitlist and will not get a copy.
+    void setOnWaitCancelled(BiConsumer<String, List<String>> onWaitCancelled) {
+        this.onWaitCancelled = onWaitCancelled;
+    }
+
+    // Lends one copy, or returns null when the book is unknown or no copy is available.
+    Loan checkOut(String bookId, String borrower) {
+        Title title = titles.get(bookId);
+        if (title == null || !acquire(title)) return null;
+        return lend(bookId, title, borrower);
+    }
+
+    // Lends a copy if one is available; otherwise puts the borrower on the waitlist and
+    // returns null. Returns null without queueing when the book is unknown.
+    Loan checkOutOrWait(String bookId, String borrower) {
+        Title title = titles.get(bookId);
+        if (title == null) return null;
+        if (acquire(title)) return lend(bookId, title, borrower);
+        Ticket ticket = new Ticket(borrower);
+        title.waitlist.add(ticket);
+        // The book may have been removed before we joined; bookRemoved has then already
+        // drained the queue.
+        if (titles.get(bookId) != title) {
+            title.waitlist.remove(ticket);
+            return null;
+        }
+        // A copy may have come back between the failed acquire and joining the queue.
+        if (acquire(title)) {
+            if (title.waitlist.remove(ticket)) return lend(bookId, title, borrower);
+            release(bookId, title);   // a returner already served us from the queue
+        }
+        return null;
+    }
+
+    // Ends the loan. Returns false when there is no such active loan.
+    boolean returnLoan(long loanId) {
+        Loan loan = active.remove(loanId);
+        if (loan == null) return false;
+        byDue.remove(loan);
+        if (loan.title != null && titles.get(loan.bookId) == loan.title) release(loan.bookId, loan.title);
+        return true;
+    }
+
+    Loan loan(long loanId) {
+        return active.get(loanId);
+    }
+
+    // Copies on the shelf; negative when copies were removed while lent out.
+    int available(String bookId) {
+        Title title = titles.get(bookId);
+        return title == null ? 0 : title.available.get();
+    }
+
+    int waiting(String bookId) {
+        Title title = titles.get(bookId);
+        return title == null ? 0 : title.waitlist.size();
+    }
+
+    int activeLoans() {
+        return active.size();
+    }
+
+    // Active loans due before the given time, earliest first.
+    List<Loan> overdue(long now) {
+        List<Loan> result = new ArrayList<>();
+        for (Loan loan : byDue) {
+            if (loan.due >= now) break;
+            result.add(loan);
+        }
+        return result;
+    }
+
+    @Override
+    public void bookAdded(String[] book) {
+        Title title = new Title();
+        title.total = copies(book);
+        title.available.set(title.total);
+        titles.put(book[BookCatalog.ID], title);
+    }
+
+    @Override
+    public void bookRemoved(String[] book) {
+        String bookId = book[BookCatalog.ID];
+        Title title = titles.remove(bookId);
+        if (title == null) return;
+        List<String> dropped = new ArrayList<>();
+        for (Ticket ticket; (ticket = title.waitlist.poll()) != null; ) dropped.add(ticket.borrower);
+        if (!dropped.isEmpty()) onWaitCancelled.accept(bookId, dropped);
+    }
+
+    // Keeps copies on loan lent out: only the difference in the copy count is applied.
+    @Override
+    public void bookUpdated(String[] old, String[] book) {
+        Title title = titles.get(book[BookCatalog.ID]);
+        if (title == null) {
+            bookAdded(book);
+            return;
+        }
+        int total = copies(book);
+        int delta = total - title.total;
+        title.total = total;
+        for (; delta > 0; delta--) release(book[BookCatalog.ID], title);
+        if (delta < 0) title.available.addAndGet(delta);
+    }
+
+    private static boolean acquire(Title title) {
+        AtomicInteger available = title.available;
+        while (true) {
+            int n = available.get();
+            if (n <= 0) return false;
+            if (available.compareAndSet(n, n - 1)) return true;
+        }
+    }
+
+    // Puts a copy back: to the first waiting borrower if there is one, else on the shelf.
+    private void release(String bookId, Title title) {
+        Ticket next = title.waitlist.poll();
+        if (next == null) {
+            title.available.incrementAndGet();
+        } else {
+            onHandover.accept(lend(bookId, title, next.borrower));
+        }
+    }
+
+    private Loan lend(String bookId, Title title, String borrower) {
+        Loan loan = new Loan(nextId.incrementAndGet(), bookId, borrower, System.currentTimeMillis() + loanMillis, title);
+        active.put(loan.id, loan);
+        byDue.add(loan);
+        return loan;
+    }
+
+    private static int copies(String[] book) {
+        try {
+            return Math.max(0, Integer.parseInt(book[BookCatalog.COPIES].trim()));
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+}
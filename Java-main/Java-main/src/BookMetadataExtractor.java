@@ -0,0 +1,303 @@
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+// Reads embedded metadata from uploaded book files on a small bounded worker pool.
+// EPUB: the OPF package document named by META-INF/container.xml, plus its cover image.
+// PDF:  the document information dictionary, found by scanning the memory-mapped file
+//       (uncompressed Info dictionaries only; MOBI is not parsed).
+// Results, including cover thumbnails, are kept in an LRU bounded by approximate bytes.
+// When the pool's queue is full a file is turned away (its future fails) rather than
+// parsed on the submitting thread, which is usually the EDT.
+class BookMetadataExtractor {
+    static final int THUMBNAIL_HEIGHT = 160;
+
+    static class Metadata {
+        String title, author, publisher, isbn, year;
+        BufferedImage thumbnail;
+
+        long approximateBytes() {
+            long bytes = 64;
+            for (String s : new String[] { title, author, publisher, isbn, year }) {
+                if (s != null) bytes += 40 + 2L * s.length();
+            }
+            if (thumbnail != null) bytes += 4L * thumbnail.getWidth() * thumbnail.getHeight();
+            return bytes;
+        }
+    }
+
+    private final ThreadPoolExecutor pool;
+    private final long cacheBytes;
+    private long cachedBytes;
+    private final LinkedHashMap<String, Metadata> cache = new LinkedHashMap<>(64, 0.75f, true);
+
+    BookMetadataExtractor(int threads, long cacheBytes) {
+        AtomicInteger count = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(32), r -> {
+                Thread t = new Thread(r, "book-metadata-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }, new ThreadPoolExecutor.AbortPolicy());
+        this.pool.allowCoreThreadTimeOut(true);
+        this.cacheBytes = cacheBytes;
+    }
+
+    // Metadata for the file, from the cache or extracted in the background.
+    CompletableFuture<Metadata> extract(Path file) {
+        String key;
+        try {
+            key = file.toAbsolutePath() + "|" + Files.size(file) + "|" + Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        Metadata cached = cached(key);
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    Metadata metadata = read(file);
+                    remember(key, metadata);
+                    return metadata;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, pool);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException(
+                "Too many files waiting for metadata extraction; skipped " + file.getFileName(), e));
+        }
+    }
+
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private synchronized Metadata cached(String key) {
+        return cache.get(key);
+    }
+
+    private synchronized void remember(String key, Metadata metadata) {
+        Metadata old = cache.put(key, metadata);
+        if (old != null) cachedBytes -= old.approximateBytes();
+        cachedBytes += metadata.approximateBytes();
+        Iterator<Map.Entry<String, Metadata>> it = cache.entrySet().iterator();
+        while (cachedBytes > cacheBytes && it.hasNext()) {
+            Map.Entry<String, Metadata> eldest = it.next();
+            if (eldest.getValue() == metadata) break;
+            cachedBytes -= eldest.getValue().approximateBytes();
+            it.remove();
+        }
+    }
+
+    static Metadata read(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase();
+        if (name.endsWith(".epub")) return readEpub(file);
+        if (name.endsWith(".pdf")) return readPdf(file);
+        return new Metadata();
+    }
+
+    // --- EPUB ---
+
+    private static final Pattern ROOTFILE = Pattern.compile("<rootfile[^>]*full-path=\"([^\"]+)\"");
+
+    static Metadata readEpub(Path file) throws IOException {
+        Metadata metadata = new Metadata();
+        try (ZipFile zip = new ZipFile(file.toFile())) {
+            String container = entryText(zip, "META-INF/container.xml");
+            if (container == null) return metadata;
+            Matcher rootfile = ROOTFILE.matcher(container);
+            if (!rootfile.find()) return metadata;
+            String opfPath = rootfile.group(1);
+            String opf = entryText(zip, opfPath);
+            if (opf == null) return metadata;
+
+            metadata.title = dc(opf, "title");
+            metadata.author = dc(opf, "creator");
+            metadata.publisher = dc(opf, "publisher");
+            metadata.year = year(dc(opf, "date"));
+            metadata.isbn = isbn(opf);
+
+            String cover = coverHref(opf);
+            if (cover != null) {
+                String base = opfPath.contains("/") ? opfPath.substring(0, opfPath.lastIndexOf('/') + 1) : "";
+                ZipEntry entry = zip.getEntry(base + cover);
+                if (entry != null && entry.getSize() < BookFileStore.MAX_SIZE) {
+                    try (InputStream in = zip.getInputStream(entry)) {
+                        metadata.thumbnail = thumbnail(ImageIO.read(in));
+                    }
+                }
+            }
+        }
+        return metadata;
+    }
+
+    private static String entryText(ZipFile zip, String name) throws IOException {
+        ZipEntry entry = zip.getEntry(name);
+        if (entry == null) return null;
+        try (InputStream in = zip.getInputStream(entry)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String dc(String opf, String element) {
+        Matcher m = Pattern.compile("<dc:" + element + "[^>]*>([^<]*)</dc:" + element + ">").matcher(opf);
+        return m.find() ? unescape(m.group(1).trim()) : null;
+    }
+
+    private static String isbn(String opf) {
+        Matcher m = Pattern.compile("<dc:identifier[^>]*>([^<]*)</dc:identifier>").matcher(opf);
+        while (m.find()) {
+            String digits = m.group(1).replaceAll("(?i)urn:isbn:|isbn:?|[\\s-]", "");
+            if (digits.matches("\\d{9}[\\dXx]|\\d{13}")) return digits;
+        }
+        return null;
+    }
+
+    private static String coverHref(String opf) {
+        Matcher item = Pattern.compile("<item\\s[^>]*properties=\"[^\"]*cover-image[^\"]*\"[^>]*>").matcher(opf);
+        if (item.find()) return attribute(item.group(), "href");
+        Matcher meta = Pattern.compile("<meta\\s[^>]*name=\"cover\"[^>]*>").matcher(opf);
+        if (!meta.find()) return null;
+        String id = attribute(meta.group(), "content");
+        if (id == null) return null;
+        Matcher byId = Pattern.compile("<item\\s[^>]*id=\"" + Pattern.quote(id) + "\"[^>]*>").matcher(opf);
+        return byId.find() ? attribute(byId.group(), "href") : null;
+    }
+
+    private static String attribute(String tag, String name) {
+        Matcher m = Pattern.compile("\\s" + name + "=\"([^\"]*)\"").matcher(tag);
+        return m.find() ? m.group(1) : null;
+    }
+
+    private static String unescape(String xml) {
+        return xml.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"")
+            .replace("&apos;", "'").replace("&amp;", "&");
+    }
+
+    // --- PDF ---
+
+    private static final byte[] INFO_KEYS = "/Title".getBytes(StandardCharsets.ISO_8859_1);
+
+    static Metadata readPdf(Path file) throws IOException {
+        Metadata metadata = new Metadata();
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            // The Info dictionary is usually near the end, so search backwards.
+            int at = lastIndexOf(buf, INFO_KEYS);
+            if (at < 0) return metadata;
+            int start = Math.max(0, lastIndexOf(buf, "<<".getBytes(StandardCharsets.ISO_8859_1), at));
+            int end = Math.min(buf.limit(), start + 8192);
+            byte[] dict = new byte[end - start];
+            buf.get(start, dict);
+            String info = new String(dict, StandardCharsets.ISO_8859_1);
+            metadata.title = pdfString(info, "Title");
+            metadata.author = pdfString(info, "Author");
+            metadata.year = year(pdfString(info, "CreationDate"));
+        }
+        return metadata;
+    }
+
+    private static int lastIndexOf(MappedByteBuffer buf, byte[] needle) {
+        return lastIndexOf(buf, needle, buf.limit());
+    }
+
+    private static int lastIndexOf(MappedByteBuffer buf, byte[] needle, int before) {
+        outer:
+        for (int i = before - needle.length; i >= 0; i--) {
+            for (int j = 0; j < needle.length; j++) {
+                if (buf.get(i + j) != needle[j]) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static String pdfString(String info, String key) {
+        int at = info.indexOf("/" + key);
+        if (at < 0) return null;
+        int i = at + key.length() + 1;
+        while (i < info.length() && Character.isWhitespace(info.charAt(i))) i++;
+        if (i >= info.length()) return null;
+        if (info.charAt(i) == '(') {
+            StringBuilder sb = new StringBuilder();
+            int depth = 0;
+            for (i++; i < info.length(); i++) {
+                char c = info.charAt(i);
+                if (c == '\\' && i + 1 < info.length()) {
+                    sb.append(info.charAt(++i));
+                } else if (c == '(') {
+                    depth++;
+                    sb.append(c);
+                } else if (c == ')') {
+                    if (depth-- == 0) break;
+                    sb.append(c);
+                } else {
+                    sb.append(c);
+                }
+            }
+            return decodePdfText(sb.toString());
+        }
+        if (info.charAt(i) == '<') {
+            int close = info.indexOf('>', i);
+            if (close < 0) return null;
+            String hex = info.substring(i + 1, close).replaceAll("\\s", "");
+            StringBuilder sb = new StringBuilder();
+            for (int h = 0; h + 1 < hex.length(); h += 2) sb.append((char) Integer.parseInt(hex.substring(h, h + 2), 16));
+            return decodePdfText(sb.toString());
+        }
+        return null;
+    }
+
+    // PDF text strings are PDFDocEncoding (close to Latin-1) or UTF-16BE with a BOM.
+    private static String decodePdfText(String raw) {
+        if (raw.length() >= 2 && raw.charAt(0) == 0xFE && raw.charAt(1) == 0xFF) {
+            byte[] bytes = raw.substring(2).getBytes(StandardCharsets.ISO_8859_1);
+            return new String(bytes, StandardCharsets.UTF_16BE).trim();
+        }
+        return raw.trim();
+    }
+
+    // --- Shared ---
+
+    private static String year(String date) {
+        if (date == null) return null;
+        Matcher m = Pattern.compile("(\\d{4})").matcher(date);
+        return m.find() ? m.group(1) : null;
+    }
+
+    static BufferedImage thumbnail(BufferedImage image) {
+        if (image == null) return null;
+        int height = Math.min(THUMBNAIL_HEIGHT, image.getHeight());
+        int width = Math.max(1, image.getWidth() * height / image.getHeight());
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scaled.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(image, 0, 0, width, height, null);
+        g.dispose();
+        return scaled;
+    }
+}
@@ -0,0 +1,93 @@
+import javax.swing.SwingUtilities;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+// Runs book searches off the event dispatch thread. Keystrokes are debounced, a newer
+// query cancels the one in flight, and only the result of the latest query is handed
+// to the publisher (on the EDT). Query latencies are kept for p50/p99 reporting.
+class BookSearchExecutor {
+    private static final int SAMPLES = 1024;
+
+    // A search that gives up and returns null once cancelled reports true.
+    interface Query {
+        List<String[]> run(String text, BooleanSupplier cancelled);
+    }
+
+    private final Query query;
+    private final long debounceMillis;
+    private final Consumer<List<String[]>> publisher;
+    private final ScheduledExecutorService worker;
+    private final AtomicLong generation = new AtomicLong();
+    private ScheduledFuture<?> pending;
+    private Runnable onComplete = () -> { };
+
+    private final long[] latencies = new long[SAMPLES];
+    private int latencyCount;
+
+    BookSearchExecutor(Query query, long debounceMillis, Consumer<List<String[]>> publisher) {
+        this.query = query;
+        this.debounceMillis = debounceMillis;
+        this.publisher = publisher;
+        this.worker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "book-search");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Runs on the EDT after each published result, e.g. to refresh a status line.
+    void setOnComplete(Runnable onComplete) {
+        this.onComplete = onComplete;
+    }
+
+    // Called on the EDT for every keystroke.
+    void submit(String text) {
+        long gen = generation.incrementAndGet();
+        if (pending != null) pending.cancel(false);
+        pending = worker.schedule(() -> run(text, gen), debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void run(String text, long gen) {
+        if (generation.get() != gen) return;
+        long start = System.nanoTime();
+        List<String[]> result = query.run(text, () -> generation.get() != gen);
+        if (result == null) return;
+        record(System.nanoTime() - start);
+        SwingUtilities.invokeLater(() -> {
+            if (generation.get() != gen) return;
+            publisher.accept(result);
+            onComplete.run();
+        });
+    }
+
+    private synchronized void record(long nanos) {
+        latencies[latencyCount % SAMPLES] = nanos;
+        latencyCount++;
+    }
+
+    // Latency percentile in milliseconds over the most recent queries, or -1 if none ran yet.
+    synchronized double percentile(double p) {
+        int n = Math.min(latencyCount, SAMPLES);
+        if (n == 0) return -1;
+        long[] sorted = Arrays.copyOf(latencies, n);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(p / 100.0 * n) - 1;
+        return sorted[Math.max(0, Math.min(n - 1, rank))] / 1_000_000.0;
+    }
+
+    String latencyReport() {
+        return String.format("p50 %.2f ms, p99 %.2f ms", percentile(50), percentile(99));
+    }
+
+    void shutdown() {
+        generation.incrementAndGet();
+        worker.shutdownNow();
+    }
+}
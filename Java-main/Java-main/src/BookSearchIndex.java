@@ -0,0 +1,137 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+// Trigram inverted index over every field of every book in a BookCatalog.
+// A query of three or more characters intersects the posting lists of its trigrams
+// and then verifies the candidates with the same case-insensitive "contains" match
+// the table search has always used. When a query extends the previous one, the
+// previous result is narrowed instead of hitting the index again.
+// The index is only written by catalog listeners, under the catalog monitor, and is
+// read without it: postings are concurrent sets and every candidate is re-checked
+// against the stored row, so searches run off the EDT without waiting for writers.
+class BookSearchIndex implements BookCatalog.Listener {
+    private static final int GRAM = 3;
+
+    private static final class Cached {
+        final String query;
+        final List<String[]> result;
+        final int modCount;
+
+        Cached(String query, List<String[]> result, int modCount) {
+            this.query = query;
+            this.result = result;
+            this.modCount = modCount;
+        }
+    }
+
+    private final BookCatalog catalog;
+    private final ConcurrentHashMap<String, Set<String>> postings = new ConcurrentHashMap<>();
+    private volatile Cached last;
+
+    BookSearchIndex(BookCatalog catalog) {
+        this.catalog = catalog;
+        catalog.addListener(this);
+    }
+
+    @Override
+    public void bookAdded(String[] book) {
+        for (String gram : grams(book)) {
+            postings.computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet()).add(book[BookCatalog.ID]);
+        }
+    }
+
+    @Override
+    public void bookRemoved(String[] book) {
+        for (String gram : grams(book)) {
+            Set<String> ids = postings.get(gram);
+            if (ids == null) continue;
+            ids.remove(book[BookCatalog.ID]);
+            if (ids.isEmpty()) postings.remove(gram);
+        }
+    }
+
+    // Books matching the query, in catalog order.
+    List<String[]> search(String query) {
+        return search(query, () -> false);
+    }
+
+    // Same as search(query), but gives up and returns null once cancelled reports true.
+    List<String[]> search(String query, BooleanSupplier cancelled) {
+        String q = query.toLowerCase();
+        int modCount = catalog.modCount();
+        Cached cached = last;
+        List<String[]> result;
+        if (cached != null && cached.modCount == modCount && q.contains(cached.query)) {
+            result = filter(cached.result, q, cancelled);
+        } else if (q.length() < GRAM) {
+            result = filter(catalog.snapshot(), q, cancelled);
+        } else {
+            result = lookup(q, cancelled);
+        }
+        if (result == null) return null;
+        last = new Cached(q, result, modCount);
+        return result;
+    }
+
+    private List<String[]> lookup(String q, BooleanSupplier cancelled) {
+        Set<String> smallest = null;
+        ArrayList<Set<String>> lists = new ArrayList<>();
+        for (int i = 0; i + GRAM <= q.length(); i++) {
+            Set<String> ids = postings.get(q.substring(i, i + GRAM));
+            if (ids == null) return new ArrayList<>();
+            lists.add(ids);
+            if (smallest == null || ids.size() < smallest.size()) smallest = ids;
+        }
+        ArrayList<BookCatalog.Record> found = new ArrayList<>();
+        int seen = 0;
+        for (String id : smallest) {
+            if ((seen++ & 1023) == 0 && cancelled.getAsBoolean()) return null;
+            boolean inAll = true;
+            for (Set<String> ids : lists) {
+                if (ids != smallest && !ids.contains(id)) {
+                    inAll = false;
+                    break;
+                }
+            }
+            if (!inAll) continue;
+            BookCatalog.Record record = catalog.record(id);
+            if (record != null && matches(record.book, q)) found.add(record);
+        }
+        found.sort(Comparator.comparingLong(r -> r.added));
+        ArrayList<String[]> result = new ArrayList<>(found.size());
+        for (BookCatalog.Record record : found) result.add(record.book);
+        return result;
+    }
+
+    private static List<String[]> filter(List<String[]> books, String q, BooleanSupplier cancelled) {
+        ArrayList<String[]> result = new ArrayList<>();
+        for (int i = 0; i < books.size(); i++) {
+            if ((i & 1023) == 0 && cancelled.getAsBoolean()) return null;
+            String[] book = books.get(i);
+            if (matches(book, q)) result.add(book);
+        }
+        return result;
+    }
+
+    static boolean matches(String[] book, String q) {
+        for (String field : book) {
+            if (field != null && field.toLowerCase().contains(q)) return true;
+        }
+        return false;
+    }
+
+    private static HashSet<String> grams(String[] book) {
+        HashSet<String> grams = new HashSet<>();
+        for (String field : book) {
+            if (field == null) continue;
+            String f = field.toLowerCase();
+            for (int i = 0; i + GRAM <= f.length(); i++) grams.add(f.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+}
@@ -0,0 +1,398 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Durable storage for the catalog: an append-only log of book and category operations
+// plus a compacted snapshot. Both files carry a generation number; compaction writes
+// snapshot N+1 and then starts log N+1, so a log older than the snapshot is ignored.
+// On startup the snapshot and the log tail are read through buffered channel reads and
+// replayed. They are not memory-mapped: a mapping outlives its channel until it is
+// garbage collected, and on Windows a mapped file can be neither truncated nor replaced.
+//
+// Book changes reach the log as the catalog's Journal, before the catalog applies them,
+// so a failed write leaves the catalog unchanged rather than ahead of the disk.
+//
+// Log record:  int length, int crc32, payload (op byte + length-prefixed UTF-8 strings)
+// Snapshot:    magic, generation, categories, books
+class BookStorage implements BookCatalog.Journal, Closeable {
+    private static final int SNAPSHOT_MAGIC = 0x424B534E; // "BKSN"
+    private static final int LOG_MAGIC = 0x424B4C47;      // "BKLG"
+    private static final int HEADER = 12;                 // magic + generation
+    private static final byte PUT = 1, DELETE = 2, ADD_CATEGORY = 3, DELETE_CATEGORY = 4;
+    private static final long COMPACT_AFTER = 100_000;
+
+    private final Path snapshotFile;
+    private final Path logFile;
+    private final BookCatalog catalog;
+    private final LinkedHashSet<String> categories = new LinkedHashSet<>();
+    private FileChannel log;
+    private long generation;
+    private long logRecords;
+    private boolean sync = true;
+    private long loadMillis;
+
+    private BookStorage(Path dir, BookCatalog catalog) {
+        this.snapshotFile = dir.resolve("catalog.snapshot");
+        this.logFile = dir.resolve("catalog.log");
+        this.catalog = catalog;
+    }
+
+    static Path defaultDirectory() {
+        return Paths.get(System.getProperty("booknest.data",
+            Paths.get(System.getProperty("user.home"), ".booknest").toString()));
+    }
+
+    // Loads the stored catalog into the (empty) catalog and starts logging its changes.
+    // defaultCategories seed the category list when nothing has been stored yet.
+    static BookStorage open(Path dir, BookCatalog catalog, List<String> defaultCategories) throws IOException {
+        Files.createDirectories(dir);
+        BookStorage storage = new BookStorage(dir, catalog);
+        long start = System.nanoTime();
+        synchronized (catalog) {
+            boolean stored = Files.exists(storage.snapshotFile) || Files.exists(storage.logFile);
+            if (!stored) storage.categories.addAll(defaultCategories);
+            storage.loadSnapshot();
+            storage.replayLog();
+            catalog.setJournal(storage);
+            if (!stored) storage.compact();
+        }
+        storage.loadMillis = (System.nanoTime() - start) / 1_000_000;
+        if (storage.logRecords > COMPACT_AFTER) storage.compact();
+        return storage;
+    }
+
+    List<String> categories() {
+        synchronized (catalog) {
+            return new ArrayList<>(categories);
+        }
+    }
+
+    long loadMillis() {
+        return loadMillis;
+    }
+
+    // With sync off, appends are only forced to disk by flush(), compact() or close().
+    void setSync(boolean sync) throws IOException {
+        this.sync = sync;
+        if (sync) flush();
+    }
+
+    void flush() throws IOException {
+        synchronized (catalog) {
+            log.force(false);
+        }
+    }
+
+    void categoryAdded(String category) {
+        synchronized (catalog) {
+            if (categories.contains(category)) return;
+            logCategory(ADD_CATEGORY, category);
+            categories.add(category);
+            applied();
+        }
+    }
+
+    void categoryRemoved(String category) {
+        synchronized (catalog) {
+            if (!categories.contains(category)) return;
+            logCategory(DELETE_CATEGORY, category);
+            categories.remove(category);
+            applied();
+        }
+    }
+
+    @Override
+    public void logPut(String[] book) throws IOException {
+        append(PUT, book);
+    }
+
+    @Override
+    public void logRemove(String id) throws IOException {
+        append(DELETE, id);
+    }
+
+    // Compacts once the log is long enough. The change is already logged, so a failed
+    // compaction only leaves the log longer; it is tried again after the next change.
+    @Override
+    public void applied() {
+        if (logRecords <= COMPACT_AFTER) return;
+        try {
+            compact();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Writes a fresh snapshot of the catalog and starts an empty log.
+    void compact() throws IOException {
+        synchronized (catalog) {
+            long next = generation + 1;
+            Path tmp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buf = ByteBuffer.allocate(1 << 16);
+                buf.putInt(SNAPSHOT_MAGIC).putLong(next);
+                buf.putInt(categories.size());
+                for (String category : categories) buf = putString(out, buf, category);
+                buf = ensure(out, buf, 4);
+                buf.putInt(catalog.size());
+                ByteBuffer[] holder = { buf };
+                IOException[] failure = { null };
+                catalog.forEach(book -> {
+                    if (failure[0] != null) return;
+                    try {
+                        for (String field : book) holder[0] = putString(out, holder[0], field);
+                    } catch (IOException e) {
+                        failure[0] = e;
+                    }
+                });
+                if (failure[0] != null) throw failure[0];
+                drain(out, holder[0]);
+                out.force(true);
+            }
+            Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            generation = next;
+            startLog();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (catalog) {
+            catalog.setJournal(null);
+            if (log != null) {
+                log.force(false);
+                log.close();
+                log = null;
+            }
+        }
+    }
+
+    private void loadSnapshot() throws IOException {
+        if (!Files.exists(snapshotFile)) return;
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            Input in = new Input(channel);
+            if (in.need(HEADER).getInt() != SNAPSHOT_MAGIC) throw new IOException("Not a catalog snapshot: " + snapshotFile);
+            generation = in.need(8).getLong();
+            byte[] scratch = new byte[4096];
+            int categoryCount = in.need(4).getInt();
+            categories.clear();
+            for (int i = 0; i < categoryCount; i++) {
+                categories.add(in.string(scratch));
+            }
+            int bookCount = in.need(4).getInt();
+            for (int i = 0; i < bookCount; i++) {
+                String[] book = new String[BookCatalog.FIELDS];
+                for (int f = 0; f < book.length; f++) book[f] = in.string(scratch);
+                catalog.put(book);
+            }
+        }
+    }
+
+    private void replayLog() throws IOException {
+        if (!Files.exists(logFile) || Files.size(logFile) < HEADER) {
+            startLog();
+            return;
+        }
+        long good;
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            Input in = new Input(channel);
+            ByteBuffer header = in.need(HEADER);
+            if (header.getInt() != LOG_MAGIC || header.getLong() != generation) {
+                // Left over from before the last compaction; the snapshot already has it.
+                good = -1;
+            } else {
+                good = HEADER;
+                byte[] scratch = new byte[4096];
+                CRC32 crc = new CRC32();
+                while (in.remaining() >= 8) {
+                    ByteBuffer buf = in.need(8);
+                    int length = buf.getInt();
+                    int checksum = buf.getInt();
+                    if (length <= 0 || length > in.remaining()) break;
+                    buf = in.need(length);
+                    ByteBuffer payload = buf.slice();
+                    payload.limit(length);
+                    crc.reset();
+                    crc.update(payload.duplicate());
+                    if ((int) crc.getValue() != checksum) break;
+                    apply(payload, scratch);
+                    buf.position(buf.position() + length);
+                    good = in.position();
+                    logRecords++;
+                }
+            }
+        }
+        if (good < 0) {
+            startLog();
+            return;
+        }
+        log = FileChannel.open(logFile, StandardOpenOption.WRITE);
+        log.truncate(good);
+        log.position(good);
+    }
+
+    private void apply(ByteBuffer payload, byte[] scratch) {
+        byte op = payload.get();
+        switch (op) {
+            case PUT:
+                String[] book = new String[BookCatalog.FIELDS];
+                for (int f = 0; f < book.length; f++) book[f] = getString(payload, scratch);
+                catalog.put(book);
+                break;
+            case DELETE:
+                catalog.remove(getString(payload, scratch));
+                break;
+            case ADD_CATEGORY:
+                categories.add(getString(payload, scratch));
+                break;
+            case DELETE_CATEGORY:
+                categories.remove(getString(payload, scratch));
+                break;
+            default:
+                throw new IllegalStateException("Unknown log operation " + op);
+        }
+    }
+
+    private void startLog() throws IOException {
+        if (log != null) log.close();
+        Path tmp = logFile.resolveSibling(logFile.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER).putInt(LOG_MAGIC).putLong(generation);
+            header.flip();
+            while (header.hasRemaining()) out.write(header);
+            out.force(true);
+        }
+        Files.move(tmp, logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log = FileChannel.open(logFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        logRecords = 0;
+    }
+
+    private void logCategory(byte op, String category) {
+        try {
+            append(op, category);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write catalog log", e);
+        }
+    }
+
+    // Called with the catalog monitor held.
+    private void append(byte op, String... values) throws IOException {
+        byte[][] encoded = new byte[values.length][];
+        int length = 1;
+        for (int i = 0; i < values.length; i++) {
+            encoded[i] = (values[i] == null ? "" : values[i]).getBytes(StandardCharsets.UTF_8);
+            length += 4 + encoded[i].length;
+        }
+        ByteBuffer record = ByteBuffer.allocate(8 + length);
+        record.putInt(length).putInt(0).put(op);
+        for (byte[] value : encoded) record.putInt(value.length).put(value);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 8, length);
+        record.putInt(4, (int) crc.getValue());
+        record.flip();
+        long end = log.size();
+        try {
+            while (record.hasRemaining()) log.write(record);
+            if (sync) log.force(false);
+        } catch (IOException e) {
+            // Take back a partly written record, or later ones would replay after a torn one.
+            try {
+                log.truncate(end);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        logRecords++;
+    }
+
+    private static String getString(ByteBuffer buf, byte[] scratch) {
+        int length = buf.getInt();
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        buf.get(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    // Sequential reads of a file through one reusable buffer.
+    private static final class Input {
+        private final FileChannel in;
+        private final long size;
+        private ByteBuffer buf = ByteBuffer.allocate(1 << 16);
+
+        Input(FileChannel in) throws IOException {
+            this.in = in;
+            this.size = in.size();
+            buf.limit(0);
+        }
+
+        // The buffer, positioned at the next n bytes of the file.
+        ByteBuffer need(int n) throws IOException {
+            if (buf.remaining() >= n) return buf;
+            if (n > buf.remaining() + remainingInFile()) throw new EOFException("Unexpected end of file");
+            if (buf.capacity() < n) {
+                ByteBuffer bigger = ByteBuffer.allocate(n);
+                bigger.put(buf);
+                buf = bigger;
+            } else {
+                buf.compact();
+            }
+            while (buf.position() < n) {
+                if (in.read(buf) < 0) throw new EOFException("Unexpected end of file");
+            }
+            buf.flip();
+            return buf;
+        }
+
+        String string(byte[] scratch) throws IOException {
+            int length = need(4).getInt(buf.position());
+            return getString(need(4 + length), scratch);
+        }
+
+        // File offset of the next unread byte, and the bytes left after it.
+        long position() throws IOException {
+            return in.position() - buf.remaining();
+        }
+
+        long remaining() throws IOException {
+            return buf.remaining() + remainingInFile();
+        }
+
+        private long remainingInFile() throws IOException {
+            return size - in.position();
+        }
+    }
+
+    private static ByteBuffer putString(FileChannel out, ByteBuffer buf, String value) throws IOException {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        buf = ensure(out, buf, 4 + bytes.length);
+        buf.putInt(bytes.length).put(bytes);
+        return buf;
+    }
+
+    private static ByteBuffer ensure(FileChannel out, ByteBuffer buf, int needed) throws IOException {
+        if (buf.remaining() >= needed) return buf;
+        drain(out, buf);
+        buf.clear();
+        return buf.capacity() >= needed ? buf : ByteBuffer.allocate(needed);
+    }
+
+    private static void drain(FileChannel out, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) out.write(buf);
+    }
+}
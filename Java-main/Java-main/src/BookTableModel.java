@@ -0,0 +1,148 @@
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Table model over the BookCatalog's immutable snapshot instead of a copy of the rows.
+// It shows either the whole catalog or a search result, optionally sorted by one column.
+// Repaints read the snapshot taken at the last refresh, so they never wait for a writer.
+// Sorting computes one key per row up front and orders a permutation, so repaints never
+// compare strings.
+class BookTableModel extends AbstractTableModel implements BookCatalog.Listener {
+    private final BookCatalog catalog;
+    private final String[] columns;
+
+    private List<String[]> rows;      // null = the whole catalog
+    private List<String[]> view;      // rows, or the catalog snapshot
+    private int[] order;              // view row -> base row, null = unsorted
+    private int sortColumn = -1;
+    private boolean ascending = true;
+    private final AtomicBoolean refreshQueued = new AtomicBoolean();   // set by writer threads, cleared on the EDT
+    private Runnable onCatalogChanged = () -> { };
+
+    BookTableModel(BookCatalog catalog, String[] columns) {
+        this.catalog = catalog;
+        this.columns = columns;
+        catalog.addListener(this, false);
+        this.view = catalog.snapshot();
+    }
+
+    // Shows only the given books, or the whole catalog when null.
+    void setRows(List<String[]> rows) {
+        this.rows = rows;
+        this.view = rows == null ? catalog.snapshot() : rows;
+        resort();
+        fireTableDataChanged();
+    }
+
+    // Sorts by the column, flipping direction when it is already the sort column.
+    void sortBy(int column) {
+        ascending = column != sortColumn || !ascending;
+        sortColumn = column;
+        resort();
+        fireTableDataChanged();
+    }
+
+    // Runs on the EDT after the catalog changed underneath the table.
+    void setOnCatalogChanged(Runnable onCatalogChanged) {
+        this.onCatalogChanged = onCatalogChanged;
+    }
+
+    void dispose() {
+        catalog.removeListener(this);
+    }
+
+    String[] bookAt(int row) {
+        return view.get(order == null ? row : order[row]);
+    }
+
+    @Override
+    public int getRowCount() {
+        return order == null ? view.size() : order.length;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columns[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return bookAt(row)[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public void bookAdded(String[] book) {
+        queueRefresh();
+    }
+
+    @Override
+    public void bookRemoved(String[] book) {
+        queueRefresh();
+    }
+
+    private void queueRefresh() {
+        if (!refreshQueued.compareAndSet(false, true)) return;
+        SwingUtilities.invokeLater(() -> {
+            refreshQueued.set(false);
+            if (rows == null) view = catalog.snapshot();
+            resort();
+            fireTableDataChanged();
+            onCatalogChanged.run();
+        });
+    }
+
+    private void resort() {
+        if (sortColumn < 0) {
+            order = null;
+            return;
+        }
+        int n = view.size();
+        int[] sorted = new int[n];
+        if (sortColumn == BookCatalog.YEAR || sortColumn == BookCatalog.COPIES) {
+            long[] keys = new long[n];
+            for (int i = 0; i < n; i++) {
+                keys[i] = ((long) numericKey(view.get(i)[sortColumn]) << 32) | i;
+            }
+            Arrays.sort(keys);
+            for (int i = 0; i < n; i++) sorted[i] = (int) keys[i];
+        } else {
+            String[] keys = new String[n];
+            Integer[] idx = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                String value = view.get(i)[sortColumn];
+                keys[i] = value == null ? "" : value.toLowerCase();
+                idx[i] = i;
+            }
+            Arrays.sort(idx, (a, b) -> keys[a].compareTo(keys[b]));
+            for (int i = 0; i < n; i++) sorted[i] = idx[i];
+        }
+        if (!ascending) {
+            for (int i = 0, j = n - 1; i < j; i++, j--) {
+                int t = sorted[i];
+                sorted[i] = sorted[j];
+                sorted[j] = t;
+            }
+        }
+        order = sorted;
+    }
+
+    private static int numericKey(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (RuntimeException e) {
+            return Integer.MIN_VALUE;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+// Validation rules for a book row, shared by the entry form and the bulk importer:
+// every text field is required, year and copies must be whole numbers and a category
+// must be chosen. The book file is checked separately by the form.
+class BookValidator {
+    static final int FORM_FIELDS = 7;
+
+    // Index of the first invalid field, or -1 when the book is valid.
+    static int firstInvalid(String[] book) {
+        for (int i = 0; i < FORM_FIELDS; i++) {
+            if (book[i] == null || book[i].trim().isEmpty()) return i;
+            if ((i == BookCatalog.YEAR || i == BookCatalog.COPIES) && !isNumber(book[i])) return i;
+        }
+        String category = book[BookCatalog.CATEGORY];
+        if (category == null || category.trim().isEmpty()) return BookCatalog.CATEGORY;
+        return -1;
+    }
+
+    // Message for the field reported by firstInvalid.
+    static String describe(String[] book, int field, String[] labels) {
+        if (field == BookCatalog.CATEGORY) return "Please select a category";
+        if (book[field] == null || book[field].trim().isEmpty()) return "Please fill in all fields";
+        return labels[field] + " must be a number";
+    }
+
+    private static boolean isNumber(String value) {
+        try {
+            Integer.parseInt(value);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Book categories as interned integer IDs with a live book count per category, kept
+// up to date from BookCatalog events. The listed categories (those offered in the
+// form) are tracked separately from the counts, so duplicate checks, "is it in use"
+// checks and per-category counts are all O(1).
+class CategoryRegistry implements BookCatalog.Listener {
+    private final HashMap<String, Integer> ids = new HashMap<>();
+    private final ArrayList<String> names = new ArrayList<>();
+    private boolean[] listed = new boolean[16];
+    private int[] counts = new int[16];
+    private final ArrayList<Integer> order = new ArrayList<>();
+
+    CategoryRegistry(BookCatalog catalog) {
+        catalog.addListener(this);
+    }
+
+    // Interned ID of the category, assigning a new one on first sight.
+    synchronized int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) return id;
+        id = names.size();
+        ids.put(name, id);
+        names.add(name);
+        if (id == counts.length) {
+            counts = Arrays.copyOf(counts, id * 2);
+            listed = Arrays.copyOf(listed, id * 2);
+        }
+        return id;
+    }
+
+    synchronized boolean contains(String name) {
+        Integer id = ids.get(name);
+        return id != null && listed[id];
+    }
+
+    // Lists the category. Returns false if it is already listed.
+    synchronized boolean add(String name) {
+        int id = intern(name);
+        if (listed[id]) return false;
+        listed[id] = true;
+        order.add(id);
+        return true;
+    }
+
+    // Unlists the category. Returns false if it is not listed or still used by a book.
+    synchronized boolean remove(String name) {
+        Integer id = ids.get(name);
+        if (id == null || !listed[id] || counts[id] > 0) return false;
+        listed[id] = false;
+        order.remove(id);
+        return true;
+    }
+
+    // Number of books in the category.
+    synchronized int count(String name) {
+        Integer id = ids.get(name);
+        return id == null ? 0 : counts[id];
+    }
+
+    // Listed categories in the order they were added.
+    synchronized List<String> names() {
+        List<String> result = new ArrayList<>(order.size());
+        for (int id : order) result.add(names.get(id));
+        return result;
+    }
+
+    // Book count per listed category, for facet views.
+    synchronized Map<String, Integer> counts() {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (int id : order) result.put(names.get(id), counts[id]);
+        return result;
+    }
+
+    @Override
+    public synchronized void bookAdded(String[] book) {
+        String category = book[BookCatalog.CATEGORY];
+        if (category != null) counts[intern(category)]++;
+    }
+
+    @Override
+    public synchronized void bookRemoved(String[] book) {
+        String category = book[BookCatalog.CATEGORY];
+        if (category != null) counts[intern(category)]--;
+    }
+}
@@ -0,0 +1,232 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Batch mode of Exp4: applies a stream of commands to an EmployeeStore, one per line,
+//
+//   add    <id> <age> <salary> <name>      name is the rest of the line
+//   update <id> <age> <salary> <name>
+//   remove <id>
+//   search <id>
+//
+// and writes one result line per command ("ok", "duplicate", "not found", or the
+// employee for search). Blank lines and lines starting with '#' are skipped; a line
+// that does not parse gets an "error line N: ..." result and the run goes on.
+//
+// Commands are parsed straight from the bytes of the stream, so a line costs no
+// allocation beyond the name of an added or updated employee. The store runs with
+// sync off, so the log is forced every group of records however few employees they
+// touch, and everything is flushed before run() returns.
+class EmployeeBatch {
+    private static final byte[] ADD = bytes("add"), UPDATE = bytes("update"),
+                                REMOVE = bytes("remove"), SEARCH = bytes("search");
+    private static final double[] POW10 = new double[23];   // exact powers of ten
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) POW10[i] = POW10[i - 1] * 10;
+    }
+
+    // Applies every command from in; returns how many were read.
+    static long run(EmployeeStore store, InputStream in, Writer out) throws IOException {
+        Reader reader = new Reader(in);
+        long commands = 0;
+        store.setSync(false);
+        try {
+            while (reader.nextCommand()) {
+                commands++;
+                try {
+                    apply(store, reader, out);
+                } catch (IllegalArgumentException e) {
+                    out.write("error line " + reader.line + ": " + e.getMessage() + "\n");
+                }
+                reader.skipLine();
+            }
+        } finally {
+            store.setSync(true);
+            out.flush();
+        }
+        return commands;
+    }
+
+    private static void apply(EmployeeStore store, Reader reader, Writer out) throws IOException {
+        byte[] command = reader.word();
+        int length = reader.wordLength;
+        if (is(ADD, command, length) || is(UPDATE, command, length)) {
+            boolean add = is(ADD, command, length);
+            int id = reader.readInt();
+            int age = reader.readInt();
+            if (age < 0 || age > EmployeeQuery.MAX_AGE) {
+                throw new IllegalArgumentException("age must be 0-" + EmployeeQuery.MAX_AGE);
+            }
+            double salary = reader.readDouble();
+            Exp4.Employee employee = new Exp4.Employee(id, reader.readRest(), age, salary);
+            boolean done = add ? store.add(employee) : store.update(employee);
+            out.write(done ? "ok\n" : add ? "duplicate\n" : "not found\n");
+        } else if (is(REMOVE, command, length)) {
+            out.write(store.remove(reader.readInt()) ? "ok\n" : "not found\n");
+        } else if (is(SEARCH, command, length)) {
+            Exp4.Employee employee = store.get(reader.readInt());
+            out.write(employee == null ? "not found\n" : employee + "\n");
+        } else {
+            throw new IllegalArgumentException("unknown command "
+                + new String(command, 0, length, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static boolean is(byte[] expected, byte[] word, int length) {
+        return length == expected.length && Arrays.equals(expected, 0, length, word, 0, length);
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // Tokenizes a byte stream line by line through one reused buffer.
+    private static final class Reader {
+        private final InputStream in;
+        private final byte[] buf = new byte[1 << 16];
+        private int pos, limit;
+        private byte[] scratch = new byte[128];
+        int wordLength;
+        long line;
+
+        Reader(InputStream in) {
+            this.in = in;
+        }
+
+        // Moves to the next line with a command on it; false at the end of input.
+        boolean nextCommand() throws IOException {
+            while (true) {
+                int b = skipBlanks();
+                if (b < 0) return false;
+                line++;
+                if (b != '\n' && b != '\r' && b != '#') return true;
+                skipLine();
+            }
+        }
+
+        // The next token, in scratch[0, wordLength).
+        byte[] word() throws IOException {
+            int b = skipBlanks();
+            int n = 0;
+            while (b >= 0 && !isSpace(b) && b != '\n' && b != '\r') {
+                if (n == scratch.length) scratch = Arrays.copyOf(scratch, n * 2);
+                scratch[n++] = (byte) b;
+                pos++;
+                b = peek();
+            }
+            if (n == 0) throw new IllegalArgumentException("missing field");
+            wordLength = n;
+            return scratch;
+        }
+
+        int readInt() throws IOException {
+            int b = skipBlanks();
+            boolean negative = b == '-';
+            if (negative) {
+                pos++;
+                b = peek();
+            }
+            if (b < '0' || b > '9') throw new IllegalArgumentException("expected a number");
+            long value = 0;
+            while (b >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+                if (value > Integer.MAX_VALUE + 1L) throw new IllegalArgumentException("number too large");
+                pos++;
+                b = peek();
+            }
+            endOfToken(b);
+            value = negative ? -value : value;
+            if (value > Integer.MAX_VALUE) throw new IllegalArgumentException("number too large");
+            return (int) value;
+        }
+
+        // Plain decimals of up to 18 digits are converted exactly as Double.parseDouble
+        // would (one correctly rounded division); anything else goes through it.
+        double readDouble() throws IOException {
+            byte[] token = word();
+            int n = wordLength;
+            int i = token[0] == '-' || token[0] == '+' ? 1 : 0;
+            long mantissa = 0;
+            int digits = 0, fraction = -1;
+            boolean plain = i < n;
+            for (; i < n && plain; i++) {
+                byte b = token[i];
+                if (b >= '0' && b <= '9') {
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (++digits > 18) plain = false;
+                    if (fraction >= 0) fraction++;
+                } else if (b == '.' && fraction < 0) {
+                    fraction = 0;
+                } else {
+                    plain = false;
+                }
+            }
+            if (plain && digits > 0 && mantissa < (1L << 53) && fraction <= 22) {
+                double value = fraction > 0 ? mantissa / POW10[fraction] : mantissa;
+                return token[0] == '-' ? -value : value;
+            }
+            try {
+                return Double.parseDouble(new String(token, 0, n, StandardCharsets.US_ASCII));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("expected a number");
+            }
+        }
+
+        // The rest of the line without surrounding blanks, decoded as UTF-8.
+        String readRest() throws IOException {
+            int b = skipBlanks();
+            int n = 0;
+            while (b >= 0 && b != '\n') {
+                if (n == scratch.length) scratch = Arrays.copyOf(scratch, n * 2);
+                scratch[n++] = (byte) b;
+                pos++;
+                b = peek();
+            }
+            while (n > 0 && (isSpace(scratch[n - 1]) || scratch[n - 1] == '\r')) n--;
+            if (n == 0) throw new IllegalArgumentException("missing name");
+            return new String(scratch, 0, n, StandardCharsets.UTF_8);
+        }
+
+        // Consumes everything up to and including the end of the line.
+        void skipLine() throws IOException {
+            int b;
+            while ((b = peek()) >= 0) {
+                pos++;
+                if (b == '\n') return;
+            }
+        }
+
+        private void endOfToken(int b) {
+            if (b >= 0 && !isSpace(b) && b != '\n' && b != '\r') {
+                throw new IllegalArgumentException("expected a number");
+            }
+        }
+
+        private int skipBlanks() throws IOException {
+            int b = peek();
+            while (isSpace(b)) {
+                pos++;
+                b = peek();
+            }
+            return b;
+        }
+
+        private int peek() throws IOException {
+            if (pos == limit) {
+                int n = in.read(buf, 0, buf.length);
+                if (n <= 0) return -1;
+                pos = 0;
+                limit = n;
+            }
+            return buf[pos] & 0xFF;
+        }
+
+        private static boolean isSpace(int b) {
+            return b == ' ' || b == '\t';
+        }
+    }
+}
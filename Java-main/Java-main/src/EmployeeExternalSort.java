@@ -0,0 +1,362 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Sorts more employees than fit on the heap. Input is cut into chunks of chunkSize;
+// each full chunk is sorted and spilled to a temporary run file as a fork/join task, so
+// several chunks sort and write while the next one is read (at most parallelism + 1
+// chunks are held at a time). The runs are then merged with a heap of run readers, at
+// most FAN_IN at once; with more runs, groups of FAN_IN are first merged into longer
+// runs in parallel. Input that fits in one chunk is sorted in memory and never spilled.
+//
+// The sort is stable: chunk sorts are stable, runs keep input order and the merge
+// breaks ties by run. Sorted employees are streamed to a consumer as they come out of
+// the merge.
+//
+// Run file: records of int name length, UTF-8 name, int age, double salary, written and
+// read through FileChannels with RUN_BUFFER-sized buffers.
+class EmployeeExternalSort {
+    static final int DEFAULT_CHUNK = 1 << 20;
+    static final int FAN_IN = 128;
+    private static final int RUN_BUFFER = 1 << 16;
+
+    private final Comparator<Exp6.Employee> order;
+    private final int chunkSize;
+    private final Path tempDir;
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+    private int runCount;
+    private long spilled;
+
+    // Runs go to a new directory under tempDir (the system temp directory when null).
+    EmployeeExternalSort(Comparator<Exp6.Employee> order, int chunkSize, Path tempDir) {
+        if (chunkSize < 1) throw new IllegalArgumentException("chunk size must be positive");
+        this.order = order;
+        this.chunkSize = chunkSize;
+        this.tempDir = tempDir;
+    }
+
+    // Exp6's sort key "name", "age" or "salary" (highest first); ties keep input order.
+    static Comparator<Exp6.Employee> order(String key) {
+        switch (key) {
+            case "name": return EmployeeViews.BY_NAME;
+            case "age": return EmployeeViews.BY_AGE;
+            case "salary": return EmployeeViews.BY_SALARY;
+            default: throw new IllegalArgumentException("Unknown sort key " + key + " (name, age or salary)");
+        }
+    }
+
+    // Runs written by the last sort(), and the employees spilled to them.
+    int runs() {
+        return runCount;
+    }
+
+    long spilled() {
+        return spilled;
+    }
+
+    void sort(Iterator<Exp6.Employee> input, Consumer<Exp6.Employee> output) throws IOException {
+        Path dir = tempDir == null ? Files.createTempDirectory("employee-sort")
+                                   : Files.createTempDirectory(tempDir, "employee-sort");
+        List<Path> runs = new ArrayList<>();
+        ArrayDeque<ForkJoinTask<Path>> spilling = new ArrayDeque<>();
+        runCount = 0;
+        spilled = 0;
+        Throwable failure = null;
+        try {
+            Exp6.Employee[] chunk = new Exp6.Employee[Math.min(chunkSize, 1 << 16)];
+            int n = 0;
+            while (input.hasNext()) {
+                if (n == chunk.length && n < chunkSize) chunk = Arrays.copyOf(chunk, (int) Math.min(chunkSize, n * 2L));
+                chunk[n++] = input.next();
+                if (n == chunkSize) {
+                    while (spilling.size() >= pool.getParallelism()) runs.add(join(spilling.poll()));
+                    spilling.add(spillTask(chunk, n, dir));
+                    chunk = new Exp6.Employee[chunkSize];
+                    n = 0;
+                }
+            }
+            if (spilling.isEmpty()) {
+                Arrays.parallelSort(chunk, 0, n, order);
+                for (int i = 0; i < n; i++) output.accept(chunk[i]);
+                return;
+            }
+            if (n > 0) spilling.add(spillTask(chunk, n, dir));
+            chunk = null;
+            while (!spilling.isEmpty()) runs.add(join(spilling.poll()));
+
+            while (runs.size() > FAN_IN) runs = mergePass(runs, dir);
+            merge(runs, output);
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            // Already failing if any are left; their run files go with the directory.
+            for (ForkJoinTask<Path> task : spilling) task.quietlyJoin();
+            try {
+                deleteAll(dir);
+            } catch (IOException e) {
+                if (failure == null) throw e;
+                failure.addSuppressed(e);
+            }
+        }
+    }
+
+    private ForkJoinTask<Path> spillTask(Exp6.Employee[] chunk, int n, Path dir) {
+        spilled += n;
+        runCount++;
+        return pool.submit(task(() -> {
+            Arrays.sort(chunk, 0, n, order);
+            Path run = Files.createTempFile(dir, "run", ".bin");
+            try (RunWriter out = new RunWriter(run)) {
+                for (int i = 0; i < n; i++) out.write(chunk[i]);
+            }
+            return run;
+        }));
+    }
+
+    // Merges consecutive groups of FAN_IN runs into single runs, the groups in parallel.
+    private List<Path> mergePass(List<Path> runs, Path dir) throws IOException {
+        List<ForkJoinTask<Path>> merges = new ArrayList<>();
+        for (int i = 0; i < runs.size(); i += FAN_IN) {
+            List<Path> group = runs.subList(i, Math.min(i + FAN_IN, runs.size()));
+            merges.add(pool.submit(task(() -> {
+                if (group.size() == 1) return group.get(0);
+                Path merged = Files.createTempFile(dir, "merge", ".bin");
+                try (RunWriter out = new RunWriter(merged)) {
+                    merge(group, out::write);
+                }
+                for (Path run : group) Files.delete(run);
+                return merged;
+            })));
+        }
+        List<Path> next = new ArrayList<>(merges.size());
+        try {
+            for (ForkJoinTask<Path> merge : merges) next.add(join(merge));
+        } finally {
+            // When one fails, the others must stop writing before the directory is deleted.
+            for (ForkJoinTask<Path> merge : merges) merge.quietlyJoin();
+        }
+        runCount += next.size();
+        return next;
+    }
+
+    private void merge(List<Path> runs, Consumer<Exp6.Employee> output) throws IOException {
+        List<RunReader> readers = new ArrayList<>(runs.size());
+        try {
+            PriorityQueue<RunReader> heap = new PriorityQueue<>(Math.max(1, runs.size()), (a, b) -> {
+                int c = order.compare(a.head, b.head);
+                return c != 0 ? c : Integer.compare(a.index, b.index);
+            });
+            for (Path run : runs) {
+                RunReader reader = new RunReader(run, readers.size());
+                readers.add(reader);
+                if (reader.advance()) heap.add(reader);
+            }
+            while (!heap.isEmpty()) {
+                RunReader reader = heap.poll();
+                output.accept(reader.head);
+                if (reader.advance()) heap.add(reader);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            for (RunReader reader : readers) reader.close();
+        }
+    }
+
+    interface IOCallable<T> {
+        T call() throws IOException;
+    }
+
+    private static <T> Callable<T> task(IOCallable<T> body) {
+        return () -> {
+            try {
+                return body.call();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    private static <T> T join(ForkJoinTask<T> task) throws IOException {
+        try {
+            return task.join();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void deleteAll(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) Files.deleteIfExists(file);
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    private static final class RunWriter implements AutoCloseable {
+        private final FileChannel out;
+        private ByteBuffer buf = ByteBuffer.allocate(RUN_BUFFER);
+
+        RunWriter(Path file) throws IOException {
+            out = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        void write(Exp6.Employee employee) {
+            byte[] name = employee.getName().getBytes(StandardCharsets.UTF_8);
+            int size = 4 + name.length + 12;
+            try {
+                if (buf.remaining() < size) {
+                    drain();
+                    if (buf.capacity() < size) buf = ByteBuffer.allocate(size);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            buf.putInt(name.length).put(name).putInt(employee.getAge()).putDouble(employee.getSalary());
+        }
+
+        private void drain() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) out.write(buf);
+            buf.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                drain();
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    private static final class RunReader {
+        final int index;
+        Exp6.Employee head;
+        private final FileChannel in;
+        private ByteBuffer buf = ByteBuffer.allocate(RUN_BUFFER);
+
+        RunReader(Path file, int index) throws IOException {
+            this.index = index;
+            this.in = FileChannel.open(file, StandardOpenOption.READ);
+            buf.limit(0);
+        }
+
+        // Reads the next employee into head; false at the end of the run.
+        boolean advance() {
+            try {
+                if (!fill(4)) return false;
+                int length = buf.getInt();
+                if (!fill(length + 12)) throw new IOException("Truncated sort run");
+                String name = new String(buf.array(), buf.position(), length, StandardCharsets.UTF_8);
+                buf.position(buf.position() + length);
+                head = new Exp6.Employee(name, buf.getInt(), buf.getDouble());
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // Makes sure n bytes are buffered; false when the run ends first.
+        private boolean fill(int n) throws IOException {
+            if (buf.remaining() >= n) return true;
+            if (buf.capacity() < n) {
+                ByteBuffer bigger = ByteBuffer.allocate(n);
+                bigger.put(buf);
+                buf = bigger;
+            } else {
+                buf.compact();
+            }
+            while (buf.position() < n) {
+                if (in.read(buf) < 0) break;
+            }
+            buf.flip();
+            return buf.remaining() >= n;
+        }
+
+        void close() throws IOException {
+            in.close();
+        }
+    }
+
+    // Employees from "name,age,salary" lines; the name may contain commas. Blank lines
+    // and lines starting with '#' are skipped. Read errors surface as UncheckedIOException.
+    static Iterator<Exp6.Employee> readCsv(BufferedReader in) {
+        return new Iterator<Exp6.Employee>() {
+            private Exp6.Employee next;
+            private long line;
+
+            @Override
+            public boolean hasNext() {
+                if (next != null) return true;
+                try {
+                    String text;
+                    while ((text = in.readLine()) != null) {
+                        line++;
+                        if (text.isEmpty() || text.startsWith("#")) continue;
+                        next = parse(text);
+                        return true;
+                    }
+                    return false;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public Exp6.Employee next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                Exp6.Employee employee = next;
+                next = null;
+                return employee;
+            }
+
+            private Exp6.Employee parse(String text) {
+                int salaryComma = text.lastIndexOf(',');
+                int ageComma = salaryComma <= 0 ? -1 : text.lastIndexOf(',', salaryComma - 1);
+                try {
+                    if (ageComma < 0) throw new NumberFormatException("expected name,age,salary");
+                    return new Exp6.Employee(text.substring(0, ageComma),
+                        Integer.parseInt(text.substring(ageComma + 1, salaryComma).trim()),
+                        Double.parseDouble(text.substring(salaryComma + 1).trim()));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("line " + line + ": " + e.getMessage());
+                }
+            }
+        };
+    }
+
+    static void writeCsv(Writer out, Exp6.Employee employee) {
+        try {
+            out.write(employee.getName());
+            out.write(',');
+            out.write(Integer.toString(employee.getAge()));
+            out.write(',');
+            out.write(Double.toString(employee.getSalary()));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+// What the helpers shared by Exp4 and Exp6 (EmployeeQuery) need from an employee. Each
+// program has its own Employee class, nested in it, that implements this.
+interface EmployeeFields {
+    String getName();
+
+    int getAge();
+
+    double getSalary();
+
+    // Changes all three at once; indexes holding the employee must be told first.
+    void set(String name, int age, double salary);
+}
@@ -0,0 +1,228 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+// Range queries and salary aggregates over a set of employees (Exp4's or Exp6's, through
+// EmployeeFields). Two sorted secondary indexes, salary -> employees and
+// age -> employees, are kept up to date by add, update and remove, so a band query
+// walks only the employees in the band. Per-age Fenwick trees of head count and salary
+// total answer count, sum and mean for an age band in O(log ages) without walking it.
+//
+// Employees are matched by identity, and their age and salary must only be changed
+// through update() while they are in the index.
+class EmployeeQuery<E extends EmployeeFields> {
+    static final int MAX_AGE = 127;
+
+    // Salary aggregates of one band. Percentiles use the nearest-rank method over the
+    // band's salaries. Age band salaries are only gathered when a percentile is first
+    // asked for, so until then the Stats are only valid while the index is unchanged;
+    // a percentile asked for after a change throws ConcurrentModificationException.
+    static final class Stats {
+        final int count;
+        final double sum;
+        private final EmployeeQuery<?> query;
+        private final int minAge, maxAge;
+        private final int modCount;    // of the query when taken
+        private double[] salaries;     // ascending; null until needed
+
+        private Stats(int count, double sum, double[] salaries, EmployeeQuery<?> query, int minAge, int maxAge) {
+            this.count = count;
+            this.sum = sum;
+            this.salaries = salaries;
+            this.query = query;
+            this.minAge = minAge;
+            this.maxAge = maxAge;
+            this.modCount = query.modCount;
+        }
+
+        double mean() {
+            return count == 0 ? Double.NaN : sum / count;
+        }
+
+        double min() {
+            return percentile(0);
+        }
+
+        double max() {
+            return percentile(100);
+        }
+
+        // Salary at or below which p percent of the band earns; NaN for an empty band.
+        double percentile(double p) {
+            if (count == 0) return Double.NaN;
+            if (p < 0 || p > 100) throw new IllegalArgumentException("percentile must be 0-100: " + p);
+            double[] sorted = salaries();
+            if (sorted.length == 0) return Double.NaN;
+            int rank = (int) Math.ceil(p / 100 * sorted.length);
+            return sorted[Math.max(rank, 1) - 1];
+        }
+
+        private double[] salaries() {
+            if (salaries == null) {
+                if (query.modCount != modCount) {
+                    throw new ConcurrentModificationException("Employees changed since the stats were taken");
+                }
+                salaries = query.ageBandSalaries(minAge, maxAge);
+            }
+            return salaries;
+        }
+
+        @Override
+        public String toString() {
+            if (count == 0) return "count=0";
+            return String.format("count=%d, sum=%.2f, mean=%.2f, min=%.2f, median=%.2f, p90=%.2f, max=%.2f",
+                count, sum, mean(), min(), percentile(50), percentile(90), max());
+        }
+    }
+
+    private final TreeMap<Double, List<E>> bySalary = new TreeMap<>();
+    private final TreeMap<Integer, List<E>> byAge = new TreeMap<>();
+    private final int[] ageCount = new int[MAX_AGE + 2];        // Fenwick trees indexed by age + 1
+    private final double[] ageSalary = new double[MAX_AGE + 2];
+    private int size;
+    private int modCount;                                       // bumped by add and remove
+
+    void add(E employee) {
+        checkAge(employee.getAge());
+        bySalary.computeIfAbsent(employee.getSalary(), s -> new ArrayList<>(1)).add(employee);
+        byAge.computeIfAbsent(employee.getAge(), a -> new ArrayList<>(1)).add(employee);
+        addAge(employee.getAge(), 1, employee.getSalary());
+        size++;
+        modCount++;
+    }
+
+    // Returns false when the employee is not in the index.
+    boolean remove(E employee) {
+        if (!removeFrom(bySalary, employee.getSalary(), employee)) return false;
+        removeFrom(byAge, employee.getAge(), employee);
+        addAge(employee.getAge(), -1, -employee.getSalary());
+        size--;
+        modCount++;
+        return true;
+    }
+
+    // Changes the employee and moves it in the indexes.
+    void update(E employee, String name, int age, double salary) {
+        checkAge(age);
+        boolean indexed = remove(employee);
+        employee.set(name, age, salary);
+        if (indexed) add(employee);
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Employees earning between min and max inclusive, lowest salary first.
+    List<E> salaryBand(double min, double max) {
+        if (min > max) return new ArrayList<>();
+        return flatten(bySalary.subMap(min, true, max, true));
+    }
+
+    // Employees aged between min and max inclusive, youngest first.
+    List<E> ageBand(int min, int max) {
+        if (min > max) return new ArrayList<>();
+        return flatten(byAge.subMap(min, true, max, true));
+    }
+
+    // The k best paid employees, highest salary first.
+    List<E> topEarners(int k) {
+        if (k <= 0) return new ArrayList<>();
+        List<E> result = new ArrayList<>(Math.min(k, size));
+        for (List<E> sameSalary : bySalary.descendingMap().values()) {
+            for (E employee : sameSalary) {
+                if (result.size() == k) return result;
+                result.add(employee);
+            }
+        }
+        return result;
+    }
+
+    Stats salaryStats(double min, double max) {
+        if (min > max) return new Stats(0, 0, new double[0], this, 0, -1);
+        NavigableMap<Double, List<E>> band = bySalary.subMap(min, true, max, true);
+        int count = 0;
+        for (List<E> sameSalary : band.values()) count += sameSalary.size();
+        double[] salaries = new double[count];
+        double sum = 0;
+        int n = 0;
+        for (Map.Entry<Double, List<E>> entry : band.entrySet()) {
+            for (int i = entry.getValue().size(); i > 0; i--) {
+                salaries[n++] = entry.getKey();
+                sum += entry.getKey();
+            }
+        }
+        return new Stats(count, sum, salaries, this, 0, -1);
+    }
+
+    // Salary aggregates of the employees aged between min and max inclusive.
+    Stats ageStats(int min, int max) {
+        min = Math.max(min, 0);
+        max = Math.min(max, MAX_AGE);
+        if (min > max) return new Stats(0, 0, new double[0], this, 0, -1);
+        int count = prefixCount(max + 1) - prefixCount(min);
+        double sum = prefixSalary(max + 1) - prefixSalary(min);
+        return new Stats(count, count == 0 ? 0 : sum, null, this, min, max);
+    }
+
+    // Salaries of the employees aged between min and max inclusive, ascending.
+    private double[] ageBandSalaries(int min, int max) {
+        Map<Integer, List<E>> band = byAge.subMap(min, true, max, true);
+        int n = 0;
+        for (List<E> sameAge : band.values()) n += sameAge.size();
+        double[] salaries = new double[n];
+        n = 0;
+        for (List<E> sameAge : band.values()) {
+            for (E employee : sameAge) salaries[n++] = employee.getSalary();
+        }
+        Arrays.sort(salaries);
+        return salaries;
+    }
+
+    private static void checkAge(int age) {
+        if (age < 0 || age > MAX_AGE) throw new IllegalArgumentException("age must be 0-" + MAX_AGE + ": " + age);
+    }
+
+    private void addAge(int age, int count, double salary) {
+        for (int i = age + 1; i < ageCount.length; i += i & -i) {
+            ageCount[i] += count;
+            ageSalary[i] += salary;
+        }
+    }
+
+    // Totals over ages below the given one.
+    private int prefixCount(int age) {
+        int total = 0;
+        for (int i = age; i > 0; i -= i & -i) total += ageCount[i];
+        return total;
+    }
+
+    private double prefixSalary(int age) {
+        double total = 0;
+        for (int i = age; i > 0; i -= i & -i) total += ageSalary[i];
+        return total;
+    }
+
+    private static <K, E> boolean removeFrom(Map<K, List<E>> index, K key, E employee) {
+        List<E> employees = index.get(key);
+        if (employees == null) return false;
+        for (int i = 0; i < employees.size(); i++) {
+            if (employees.get(i) == employee) {
+                employees.remove(i);
+                if (employees.isEmpty()) index.remove(key);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <E> List<E> flatten(Map<?, List<E>> band) {
+        List<E> result = new ArrayList<>();
+        for (List<E> employees : band.values()) result.addAll(employees);
+        return result;
+    }
+}
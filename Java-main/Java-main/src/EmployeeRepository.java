@@ -0,0 +1,85 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Employees of Exp4, keyed by ID. Employees live in a dense slot array in insertion
+// order; an IntIndex from ID to slot (no Integer boxing) makes lookup, update and
+// removal O(1). A removed employee leaves a null tombstone in its slot, and the slots
+// are compacted once tombstones outnumber live employees.
+class EmployeeRepository {
+    private Exp4.Employee[] slots = new Exp4.Employee[16];
+    private int used;          // slots in use, tombstones included
+    private int dead;
+    private final IntIndex index = new IntIndex();
+
+    // Adds the employee; returns false, changing nothing, when the ID is already taken.
+    boolean add(Exp4.Employee employee) {
+        if (index.contains(employee.id)) return false;
+        if (used == slots.length) {
+            compact();
+            if (used == slots.length) slots = Arrays.copyOf(slots, used * 2);
+        }
+        slots[used] = employee;
+        index.put(employee.id, used);
+        used++;
+        return true;
+    }
+
+    Exp4.Employee get(int id) {
+        int slot = index.get(id);
+        return slot == IntIndex.MISSING ? null : slots[slot];
+    }
+
+    boolean contains(int id) {
+        return index.contains(id);
+    }
+
+    // Removes and returns the employee, or null when there is none with that ID.
+    Exp4.Employee remove(int id) {
+        int slot = index.remove(id);
+        if (slot == IntIndex.MISSING) return null;
+        Exp4.Employee employee = slots[slot];
+        slots[slot] = null;
+        dead++;
+        if (dead > 16 && dead > index.size()) compact();
+        return employee;
+    }
+
+    int size() {
+        return index.size();
+    }
+
+    boolean isEmpty() {
+        return index.size() == 0;
+    }
+
+    // Employees in the order they were added.
+    void forEach(Consumer<Exp4.Employee> action) {
+        for (int i = 0; i < used; i++) {
+            if (slots[i] != null) action.accept(slots[i]);
+        }
+    }
+
+    List<Exp4.Employee> list() {
+        List<Exp4.Employee> result = new ArrayList<>(index.size());
+        forEach(result::add);
+        return result;
+    }
+
+    // Closes the gaps left by removed employees, keeping insertion order.
+    void compact() {
+        if (dead == 0) return;
+        int write = 0;
+        for (int read = 0; read < used; read++) {
+            Exp4.Employee employee = slots[read];
+            if (employee == null) continue;
+            slots[write] = employee;
+            index.put(employee.id, write);
+            write++;
+        }
+        Arrays.fill(slots, write, used, null);
+        used = write;
+        dead = 0;
+    }
+}
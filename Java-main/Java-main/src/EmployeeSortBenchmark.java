@@ -0,0 +1,112 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Exp6's three orderings (name, age, salary highest first) over generated employees:
+// one list sorted by each key in turn, as Exp6 did, against EmployeeViews. First a bulk load (three
+// sorts of a fresh list against one addAll), then single-employee updates each followed
+// by needing all three orders again (three re-sorts against one update; the re-sorts
+// are only timed for the first few updates, as each is a full sort). Orders are checked
+// against those sorts after each part.
+// Usage: java EmployeeSortBenchmark [employees] [updates]
+public class EmployeeSortBenchmark {
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int updates = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int resorts = Math.min(updates, 5);
+        List<Exp6.Employee> generated = generate(n, 7);
+
+        System.out.printf("%,d employees%n", n);
+        EmployeeViews views = null;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            List<Exp6.Employee> list = new ArrayList<>(generated);
+            list.sort(EmployeeViews.BY_NAME);
+            list.sort(EmployeeViews.BY_AGE);
+            list.sort(EmployeeViews.BY_SALARY);
+            long sortNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            views = new EmployeeViews();
+            views.addAll(generated);
+            long viewNanos = System.nanoTime() - start;
+            System.out.printf("bulk load %d: List.sort x3 %7.1f ms, EmployeeViews.addAll %7.1f ms%n",
+                round, sortNanos / 1e6, viewNanos / 1e6);
+        }
+        System.out.println("orders match List.sort: " + check(views, generated, true));
+
+        // Each update changes one employee; both sides then have all three orders ready.
+        List<Exp6.Employee> list = new ArrayList<>();
+        for (Exp6.Employee employee : generated) list.add(new Exp6.Employee(employee.name, employee.age, employee.salary));
+        List<Exp6.Employee> copies = new ArrayList<>(list);
+        SplittableRandom random = new SplittableRandom(11);
+        long sortNanos = 0, viewNanos = 0;
+        for (int i = 0; i < updates; i++) {
+            int target = random.nextInt(n);
+            String name = name(random);
+            int age = random.nextInt(18, 66);
+            double salary = salary(random);
+
+            if (i < resorts) {
+                Exp6.Employee copy = copies.get(target);
+                long start = System.nanoTime();
+                copy.name = name;
+                copy.age = age;
+                copy.salary = salary;
+                list.sort(EmployeeViews.BY_NAME);
+                list.sort(EmployeeViews.BY_AGE);
+                list.sort(EmployeeViews.BY_SALARY);
+                sortNanos += System.nanoTime() - start;
+            }
+
+            long start = System.nanoTime();
+            views.update(generated.get(target), name, age, salary);
+            viewNanos += System.nanoTime() - start;
+        }
+        System.out.printf("per update: List.sort x3 %9.1f us, EmployeeViews.update %7.2f us%n",
+            sortNanos / 1e3 / Math.max(resorts, 1), viewNanos / 1e3 / Math.max(updates, 1));
+        // Updated employees go after their new equals, so only the keys are compared here.
+        System.out.println("orders match List.sort: " + check(views, generated, false));
+    }
+
+    static List<Exp6.Employee> generate(int n, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Exp6.Employee> employees = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) employees.add(new Exp6.Employee(name(random), random.nextInt(18, 66), salary(random)));
+        return employees;
+    }
+
+    private static String name(SplittableRandom random) {
+        char[] name = new char[random.nextInt(4, 9)];
+        name[0] = (char) ('A' + random.nextInt(26));
+        for (int i = 1; i < name.length; i++) name[i] = (char) ('a' + random.nextInt(26));
+        return new String(name);
+    }
+
+    private static double salary(SplittableRandom random) {
+        return random.nextInt(2_000_000, 20_000_000) / 100.0;
+    }
+
+    // Compares each view with what Exp6 printed: one list sorted by name, then by age,
+    // then by salary, each sort keeping the previous order for its ties. Element by
+    // element or, when exact is false, by sort keys only.
+    private static boolean check(EmployeeViews views, List<Exp6.Employee> employees, boolean exact) {
+        List<List<Exp6.Employee>> orders = List.of(views.byName(), views.byAge(), views.bySalary());
+        List<Comparator<Exp6.Employee>> keys = List.of(EmployeeViews.BY_NAME, EmployeeViews.BY_AGE, EmployeeViews.BY_SALARY);
+        List<Exp6.Employee> sorted = new ArrayList<>(employees);
+        Comparator<Exp6.Employee> chained = null;
+        for (int k = 0; k < 3; k++) {
+            sorted.sort(keys.get(k));
+            chained = chained == null ? keys.get(k) : keys.get(k).thenComparing(chained);
+            List<Exp6.Employee> order = orders.get(k);
+            if (order.size() != sorted.size()) return false;
+            for (int i = 0; i < sorted.size(); i++) {
+                boolean same = exact ? order.get(i) == sorted.get(i)
+                                     : chained.compare(order.get(i), sorted.get(i)) == 0;
+                if (!same) return false;
+            }
+        }
+        return true;
+    }
+}
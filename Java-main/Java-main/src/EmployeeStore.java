@@ -0,0 +1,449 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// Durable storage for Exp4's employees: fixed-width records in a memory-mapped data
+// file, changed only through a write-ahead log.
+//
+// Every add, update and remove appends the new image of the record's slot to the log
+// and keeps it in memory until the log has been forced; only then is it copied into
+// the mapped file, so the data file never gets ahead of the log. Log records are
+// buffered and written just before the force. Threads committing at the same time share
+// one write and force (group commit); with sync off, the log is forced every GROUP
+// records or by flush(). A checkpoint forces the data file, stores the last
+// applied log sequence number (LSN) in its header and empties the log. On open, log
+// records past that LSN are replayed; replaying a slot image twice is harmless. Every
+// commit checkpoints once the log passes CHECKPOINT_BYTES.
+//
+// Opening rebuilds the ID -> slot index by reading only the flag and ID of each slot;
+// an employee is decoded when it is asked for.
+//
+// Data file: magic, checkpoint LSN, then RECORD-byte slots of
+//            live flag, id, age, salary, name length, UTF-8 name (up to NAME_BYTES)
+// Log:       magic, then records of int length, int crc32, payload (LSN, slot, image)
+class EmployeeStore implements Closeable {
+    static final int NAME_BYTES = 96;
+    static final int RECORD = 128;
+    private static final int DATA_MAGIC = 0x454D5044;   // "EMPD"
+    private static final int LOG_MAGIC = 0x454D504C;    // "EMPL"
+    private static final int HEADER = 16;               // magic, pad, checkpoint LSN
+    private static final int LOG_HEADER = 4;
+    private static final int ENTRY = 8 + 12 + RECORD;   // one log record
+    private static final int INITIAL_SLOTS = 1024;
+    private static final int MAX_SLOTS = (Integer.MAX_VALUE - HEADER) / RECORD;
+    private static final int GROUP = 512;
+    private static final long CHECKPOINT_BYTES = 8L * 1024 * 1024;
+    private static final int REPLAY_BUFFER = 256 * ENTRY;
+
+    // A logged slot image waiting for the log to be forced.
+    private static final class Pending {
+        final long lsn;
+        final byte[] image;
+
+        Pending(long lsn, byte[] image) {
+            this.lsn = lsn;
+            this.image = image;
+        }
+    }
+
+    private final FileChannel data;
+    private final FileChannel log;
+    private MappedByteBuffer mapped;
+    private int capacity;                  // slots in the mapped file
+    private final IntIndex index = new IntIndex();
+    private int[] free = new int[0];       // stack of free slots
+    private int freeCount;
+    private final ByteBuffer logBuffer = ByteBuffer.allocate(GROUP * ENTRY);   // appended, not yet written
+    private final CRC32 crc = new CRC32();
+    private final LinkedHashMap<Integer, Pending> pending = new LinkedHashMap<>();   // in LSN order
+    private long lastLsn;
+    private long durableLsn;
+    private long logBytes;
+    private boolean forcing;
+    private boolean sync = true;
+    private long loadMillis;
+
+    private EmployeeStore(FileChannel data, FileChannel log) {
+        this.data = data;
+        this.log = log;
+    }
+
+    static Path defaultDirectory() {
+        return Paths.get(System.getProperty("employees.data", "employee-data"));
+    }
+
+    static EmployeeStore open(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        long start = System.nanoTime();
+        FileChannel data = FileChannel.open(dir.resolve("employees.dat"), StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel log = FileChannel.open(dir.resolve("employees.log"), StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        EmployeeStore store = new EmployeeStore(data, log);
+        try {
+            synchronized (store) {
+                store.load();
+            }
+        } catch (IOException | RuntimeException e) {
+            data.close();
+            log.close();
+            throw e;
+        }
+        store.loadMillis = (System.nanoTime() - start) / 1_000_000;
+        return store;
+    }
+
+    long loadMillis() {
+        return loadMillis;
+    }
+
+    // With sync off, changes are forced GROUP log records at a time, or by flush() or close().
+    void setSync(boolean sync) throws IOException {
+        this.sync = sync;
+        if (sync) flush();
+    }
+
+    synchronized int size() {
+        return index.size();
+    }
+
+    synchronized boolean contains(int id) {
+        return index.contains(id);
+    }
+
+    // Decodes the stored employee, or returns null when there is none with that ID.
+    synchronized Exp4.Employee get(int id) {
+        int slot = index.get(id);
+        return slot == IntIndex.MISSING ? null : decode(image(slot));
+    }
+
+    // Stores a new employee; returns false, changing nothing, when the ID is taken.
+    // Fails with IllegalArgumentException when the name is longer than NAME_BYTES.
+    boolean add(Exp4.Employee employee) throws IOException {
+        long lsn;
+        synchronized (this) {
+            if (index.contains(employee.id)) return false;
+            byte[] image = encode(employee);
+            int slot = allocate();
+            lsn = append(slot, image);
+            index.put(employee.id, slot);
+        }
+        commit(lsn);
+        return true;
+    }
+
+    // Overwrites the stored employee with the same ID; returns false when there is none.
+    boolean update(Exp4.Employee employee) throws IOException {
+        long lsn;
+        synchronized (this) {
+            int slot = index.get(employee.id);
+            if (slot == IntIndex.MISSING) return false;
+            lsn = append(slot, encode(employee));
+        }
+        commit(lsn);
+        return true;
+    }
+
+    boolean remove(int id) throws IOException {
+        long lsn;
+        synchronized (this) {
+            int slot = index.get(id);
+            if (slot == IntIndex.MISSING) return false;
+            lsn = append(slot, new byte[RECORD]);
+            index.remove(id);
+            release(slot);
+        }
+        commit(lsn);
+        return true;
+    }
+
+    // Decodes every stored employee, in slot order.
+    synchronized void forEach(Consumer<Exp4.Employee> action) {
+        for (int slot = 0; slot < capacity; slot++) {
+            Pending change = pending.get(slot);
+            if (change != null) {
+                if (change.image[0] != 0) action.accept(decode(change.image));
+            } else if (mapped.get(offset(slot)) != 0) {
+                action.accept(decode(image(slot)));
+            }
+        }
+    }
+
+    // Forces every change made so far and applies it to the data file.
+    void flush() throws IOException {
+        long lsn;
+        synchronized (this) {
+            lsn = lastLsn;
+        }
+        force(lsn);
+    }
+
+    // Forces the data file and empties the log.
+    synchronized void checkpoint() throws IOException {
+        while (!pending.isEmpty()) force(lastLsn);
+        // Everything logged is now in the mapped file, and the monitor keeps it so.
+        mapped.force();
+        mapped.putLong(8, lastLsn);
+        mapped.force(0, HEADER);
+        log.truncate(LOG_HEADER);
+        log.position(LOG_HEADER);
+        log.force(false);
+        logBytes = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!log.isOpen()) return;
+        checkpoint();
+        log.close();
+        data.close();
+    }
+
+    // Adds the slot image to the log buffer and holds it until the log is forced.
+    // Called with the monitor held.
+    private long append(int slot, byte[] image) throws IOException {
+        if (logBuffer.remaining() < ENTRY) writeLog();
+        long lsn = lastLsn + 1;
+        int start = logBuffer.position();
+        logBuffer.putInt(ENTRY - 8).putInt(0).putLong(lsn).putInt(slot).put(image);
+        crc.reset();
+        crc.update(logBuffer.array(), start + 8, ENTRY - 8);
+        logBuffer.putInt(start + 4, (int) crc.getValue());
+        lastLsn = lsn;
+        logBytes += ENTRY;
+        pending.remove(slot);        // re-insert to keep the map in LSN order
+        pending.put(slot, new Pending(lsn, image));
+        return lsn;
+    }
+
+    private void commit(long lsn) throws IOException {
+        boolean due;
+        synchronized (this) {
+            // Counted in log records, not pending slots: updates to a few IDs still add up.
+            due = sync || lastLsn - durableLsn >= GROUP || logBuffer.remaining() < ENTRY;
+        }
+        if (due) force(lsn);
+        synchronized (this) {
+            if (logBytes > CHECKPOINT_BYTES) checkpoint();
+        }
+    }
+
+    // Returns once the log is forced at least up to lsn. A thread that finds no force in
+    // progress forces for everything logged so far, so threads arriving meanwhile wait
+    // for that one force or share the next.
+    private void force(long lsn) throws IOException {
+        long upTo;
+        synchronized (this) {
+            while (forcing && durableLsn < lsn) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while committing", e);
+                }
+            }
+            if (durableLsn >= lsn) return;
+            writeLog();
+            forcing = true;
+            upTo = lastLsn;
+        }
+        boolean forced = false;
+        try {
+            log.force(false);
+            forced = true;
+        } finally {
+            synchronized (this) {
+                if (forced) {
+                    durableLsn = upTo;
+                    applyDurable();
+                }
+                forcing = false;
+                notifyAll();
+            }
+        }
+    }
+
+    // Writes out the log buffer. Called with the monitor held.
+    private void writeLog() throws IOException {
+        logBuffer.flip();
+        try {
+            while (logBuffer.hasRemaining()) log.write(logBuffer);
+        } finally {
+            logBuffer.compact();
+        }
+    }
+
+    // Copies forced slot images into the mapped file. Called with the monitor held.
+    private void applyDurable() {
+        Iterator<Map.Entry<Integer, Pending>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, Pending> entry = it.next();
+            if (entry.getValue().lsn > durableLsn) break;
+            write(entry.getKey(), entry.getValue().image);
+            it.remove();
+        }
+    }
+
+    private void load() throws IOException {
+        long checkpointLsn = 0;
+        if (data.size() < HEADER) {
+            map(INITIAL_SLOTS);
+            mapped.putInt(0, DATA_MAGIC);
+            mapped.putLong(8, 0);
+            mapped.force(0, HEADER);
+        } else {
+            map((int) Math.min(MAX_SLOTS, Math.max(INITIAL_SLOTS, (data.size() - HEADER) / RECORD)));
+            if (mapped.getInt(0) != DATA_MAGIC) throw new IOException("Not an employee data file");
+            checkpointLsn = mapped.getLong(8);
+        }
+        lastLsn = checkpointLsn;
+        replayLog(checkpointLsn);
+        durableLsn = lastLsn;
+
+        // Index: only the flag and ID of each slot are read.
+        int[] stack = new int[capacity];
+        int n = 0;
+        for (int slot = capacity - 1; slot >= 0; slot--) {
+            int offset = offset(slot);
+            if (mapped.get(offset) == 0) {
+                stack[n++] = slot;
+            } else {
+                index.put(mapped.getInt(offset + 1), slot);
+            }
+        }
+        free = stack;
+        freeCount = n;
+    }
+
+    private void replayLog(long checkpointLsn) throws IOException {
+        long size = log.size();
+        if (size < LOG_HEADER) {
+            ByteBuffer magic = ByteBuffer.allocate(LOG_HEADER).putInt(0, LOG_MAGIC);
+            while (magic.hasRemaining()) log.write(magic, magic.position());
+            log.truncate(LOG_HEADER);
+            log.position(LOG_HEADER);
+            log.force(false);
+            return;
+        }
+        // Read a chunk at a time into the heap rather than mapped: the log is truncated below
+        // and at every checkpoint, which fails on Windows while a mapping of it is still
+        // alive. A log of any size replays in REPLAY_BUFFER bytes.
+        ByteBuffer buf = ByteBuffer.allocate(REPLAY_BUFFER);
+        buf.flip();
+        long readAt = fill(buf, 0);
+        if (buf.remaining() < LOG_HEADER || buf.getInt() != LOG_MAGIC) throw new IOException("Not an employee log");
+        long good = LOG_HEADER;
+        CRC32 crc = new CRC32();
+        byte[] image = new byte[RECORD];
+        while (true) {
+            if (buf.remaining() < ENTRY) {
+                readAt = fill(buf, readAt);
+                if (buf.remaining() < ENTRY) break;
+            }
+            int length = buf.getInt();
+            int checksum = buf.getInt();
+            if (length != ENTRY - 8) break;
+            ByteBuffer payload = buf.slice();
+            payload.limit(length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) break;
+            long lsn = payload.getLong();
+            int slot = payload.getInt();
+            if (slot < 0 || slot >= MAX_SLOTS) break;
+            payload.get(image);
+            if (lsn > checkpointLsn) {
+                if (slot >= capacity) map(Math.max(slot + 1, capacity * 2));
+                write(slot, image);
+            }
+            lastLsn = Math.max(lastLsn, lsn);
+            buf.position(buf.position() + length);
+            good += 8 + length;
+        }
+        // A torn tail is from changes that were never committed.
+        log.truncate(good);
+        log.position(good);
+        logBytes = good - LOG_HEADER;
+    }
+
+    // Moves the unread bytes of buf to its front and fills the rest from the log, starting
+    // at file offset at. Returns the offset after the last byte read.
+    private long fill(ByteBuffer buf, long at) throws IOException {
+        buf.compact();
+        int n;
+        while (buf.hasRemaining() && (n = log.read(buf, at)) > 0) at += n;
+        buf.flip();
+        return at;
+    }
+
+    private int allocate() throws IOException {
+        if (freeCount == 0) {
+            if (capacity == MAX_SLOTS) throw new IOException("Employee store is full");
+            int old = capacity;
+            map((int) Math.min(MAX_SLOTS, capacity * 2L));
+            if (free.length < capacity) free = Arrays.copyOf(free, capacity);
+            for (int slot = capacity - 1; slot >= old; slot--) free[freeCount++] = slot;
+        }
+        return free[--freeCount];
+    }
+
+    private void release(int slot) {
+        if (freeCount == free.length) free = Arrays.copyOf(free, Math.max(16, free.length * 2));
+        free[freeCount++] = slot;
+    }
+
+    // Maps the data file with room for the given number of slots, growing the file.
+    private void map(int slots) throws IOException {
+        mapped = data.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + (long) slots * RECORD);
+        capacity = slots;
+    }
+
+    private byte[] image(int slot) {
+        Pending change = pending.get(slot);
+        if (change != null) return change.image;
+        byte[] image = new byte[RECORD];
+        mapped.get(offset(slot), image);
+        return image;
+    }
+
+    private void write(int slot, byte[] image) {
+        mapped.put(offset(slot), image);
+    }
+
+    private static int offset(int slot) {
+        return HEADER + slot * RECORD;
+    }
+
+    private static byte[] encode(Exp4.Employee employee) {
+        byte[] name = (employee.name == null ? "" : employee.name).getBytes(StandardCharsets.UTF_8);
+        if (name.length > NAME_BYTES) {
+            throw new IllegalArgumentException("Name is longer than " + NAME_BYTES + " bytes.");
+        }
+        ByteBuffer image = ByteBuffer.allocate(RECORD);
+        image.put((byte) 1).putInt(employee.id).putInt(employee.age).putDouble(employee.salary)
+            .putShort((short) name.length).put(name);
+        return image.array();
+    }
+
+    private static Exp4.Employee decode(byte[] image) {
+        ByteBuffer buf = ByteBuffer.wrap(image, 1, RECORD - 1);
+        int id = buf.getInt();
+        int age = buf.getInt();
+        double salary = buf.getDouble();
+        int length = Math.min(buf.getShort() & 0xFFFF, NAME_BYTES);
+        return new Exp4.Employee(id, new String(image, buf.position(), length, StandardCharsets.UTF_8), age, salary);
+    }
+}
@@ -0,0 +1,291 @@
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+// Exp6's employees kept in three orders at once: by name, by age, and by salary highest
+// first. Each order is a permutation of indexes into one employee list, so nothing is
+// re-sorted when an order is read. add, remove and update binary-search each
+// permutation for the position and shift it, O(log n) compares and an array move.
+// addAll rebuilds the permutations from scratch with LSD radix sorts on primitive keys:
+// the first four chars of the name, after which only runs of names sharing those four
+// chars are merge sorted, then age, then salary.
+//
+// The orders are the ones Exp6 printed by sorting one list by name, then by age, then
+// by salary: ties on age are in name order, and ties on salary in age order. Employees
+// equal on all three keep the order they were added in; an updated employee goes after
+// its new equals, and addAll orders them by position in the list (which removals
+// reshuffle). Employees are matched by identity, and name, age and salary must only be
+// changed through update().
+class EmployeeViews {
+    interface IndexComparator {
+        int compare(int a, int b);
+    }
+
+    // Exp6's sort keys, each on its own.
+    static final Comparator<Exp6.Employee> BY_NAME = (e1, e2) -> e1.getName().compareTo(e2.getName());
+    static final Comparator<Exp6.Employee> BY_AGE = (e1, e2) -> Integer.compare(e1.getAge(), e2.getAge());
+    static final Comparator<Exp6.Employee> BY_SALARY = (e1, e2) -> Double.compare(e2.getSalary(), e1.getSalary());
+
+    private static final Comparator<Exp6.Employee> AGE_ORDER = BY_AGE.thenComparing(BY_NAME);
+    private static final Comparator<Exp6.Employee> SALARY_ORDER = BY_SALARY.thenComparing(AGE_ORDER);
+
+    private final ArrayList<Exp6.Employee> employees = new ArrayList<>();
+    private int[] byName = new int[16];
+    private int[] byAge = new int[16];
+    private int[] bySalary = new int[16];
+
+    private final IndexComparator nameOrder = (a, b) -> BY_NAME.compare(employees.get(a), employees.get(b));
+    private final IndexComparator ageOrder = (a, b) -> AGE_ORDER.compare(employees.get(a), employees.get(b));
+    private final IndexComparator salaryOrder = (a, b) -> SALARY_ORDER.compare(employees.get(a), employees.get(b));
+
+    void add(Exp6.Employee employee) {
+        int index = employees.size();
+        if (index == byName.length) {
+            byName = Arrays.copyOf(byName, index * 2);
+            byAge = Arrays.copyOf(byAge, index * 2);
+            bySalary = Arrays.copyOf(bySalary, index * 2);
+        }
+        employees.add(employee);
+        insert(byName, index, nameOrder);
+        insert(byAge, index, ageOrder);
+        insert(bySalary, index, salaryOrder);
+    }
+
+    // Adds the employees and rebuilds every order in one pass per key.
+    void addAll(Collection<? extends Exp6.Employee> added) {
+        employees.addAll(added);
+        int n = employees.size();
+        int[] identity = new int[n];
+        for (int i = 0; i < n; i++) identity[i] = i;
+
+        int[] ageKeys = new int[n];
+        long[] salaryKeys = new long[n];
+        long[] nameKeys = new long[n];
+        for (int i = 0; i < n; i++) {
+            Exp6.Employee employee = employees.get(i);
+            ageKeys[i] = employee.getAge();
+            salaryKeys[i] = ~sortableBits(employee.getSalary());   // descending
+            nameKeys[i] = namePrefix(employee.getName());
+        }
+        byName = radixSort(identity, nameKeys, 4);
+        int run = 0;
+        while (run < n) {
+            long prefix = nameKeys[byName[run]];
+            int end = run + 1;
+            while (end < n && nameKeys[byName[end]] == prefix) end++;
+            if (end - run > 1) mergeSort(byName, run, end, nameOrder);
+            run = end;
+        }
+        // Stable, so each order keeps the previous one for its ties.
+        byAge = radixSort(byName, ageKeys);
+        bySalary = radixSort(byAge, salaryKeys);
+        if (n < 16) {
+            byName = Arrays.copyOf(byName, 16);
+            byAge = Arrays.copyOf(byAge, 16);
+            bySalary = Arrays.copyOf(bySalary, 16);
+        }
+    }
+
+    // Returns false when the employee is not in the views.
+    boolean remove(Exp6.Employee employee) {
+        int index = indexOf(employee);
+        if (index < 0) return false;
+        int last = employees.size() - 1;
+        delete(byName, last + 1, index, nameOrder);
+        delete(byAge, last + 1, index, ageOrder);
+        delete(bySalary, last + 1, index, salaryOrder);
+        // Move the last employee into the hole and renumber it in every order.
+        if (index != last) {
+            int nameAt = position(byName, last, last, nameOrder);
+            int ageAt = position(byAge, last, last, ageOrder);
+            int salaryAt = position(bySalary, last, last, salaryOrder);
+            employees.set(index, employees.get(last));
+            byName[nameAt] = index;
+            byAge[ageAt] = index;
+            bySalary[salaryAt] = index;
+        }
+        employees.remove(last);
+        return true;
+    }
+
+    // Changes the employee and moves it in each order.
+    void update(Exp6.Employee employee, String name, int age, double salary) {
+        int index = indexOf(employee);
+        if (index < 0) {
+            employee.set(name, age, salary);
+            return;
+        }
+        int size = employees.size();
+        delete(byName, size, index, nameOrder);
+        delete(byAge, size, index, ageOrder);
+        delete(bySalary, size, index, salaryOrder);
+        employee.set(name, age, salary);
+        insertAt(byName, size - 1, index, nameOrder);
+        insertAt(byAge, size - 1, index, ageOrder);
+        insertAt(bySalary, size - 1, index, salaryOrder);
+    }
+
+    int size() {
+        return employees.size();
+    }
+
+    // Read-only views of the current orders; they follow later changes.
+    List<Exp6.Employee> byName() {
+        return view(0);
+    }
+
+    List<Exp6.Employee> byAge() {
+        return view(1);
+    }
+
+    List<Exp6.Employee> bySalary() {
+        return view(2);
+    }
+
+    private List<Exp6.Employee> view(int order) {
+        return new AbstractList<Exp6.Employee>() {
+            @Override
+            public Exp6.Employee get(int i) {
+                if (i < 0 || i >= employees.size()) throw new IndexOutOfBoundsException("Index: " + i);
+                int[] permutation = order == 0 ? byName : order == 1 ? byAge : bySalary;
+                return employees.get(permutation[i]);
+            }
+
+            @Override
+            public int size() {
+                return employees.size();
+            }
+        };
+    }
+
+    private int indexOf(Exp6.Employee employee) {
+        // The salary order narrows the search to the employees with the same salary.
+        int n = employees.size();
+        int lo = lowerBound(bySalary, n, i -> Double.compare(employees.get(i).getSalary(), employee.getSalary()));
+        for (int p = lo; p < n; p++) {
+            Exp6.Employee other = employees.get(bySalary[p]);
+            if (other == employee) return bySalary[p];
+            if (Double.compare(other.getSalary(), employee.getSalary()) != 0) break;
+        }
+        return -1;
+    }
+
+    // Inserts index, the newest employee, after everything that sorts before or equal to it.
+    private void insert(int[] permutation, int index, IndexComparator order) {
+        insertAt(permutation, index, index, order);
+    }
+
+    // Inserts index into permutation[0, size).
+    private static void insertAt(int[] permutation, int size, int index, IndexComparator order) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (order.compare(permutation[mid], index) <= 0) lo = mid + 1;
+            else hi = mid;
+        }
+        System.arraycopy(permutation, lo, permutation, lo + 1, size - lo);
+        permutation[lo] = index;
+    }
+
+    // Removes index from permutation[0, size).
+    private static void delete(int[] permutation, int size, int index, IndexComparator order) {
+        int p = position(permutation, size, index, order);
+        System.arraycopy(permutation, p + 1, permutation, p, size - p - 1);
+    }
+
+    // Where index sits in permutation[0, size): binary search to its run of equals, then a scan.
+    private static int position(int[] permutation, int size, int index, IndexComparator order) {
+        for (int p = lowerBound(permutation, size, i -> order.compare(index, i)); p < size; p++) {
+            if (permutation[p] == index) return p;
+        }
+        throw new IllegalStateException("Employee " + index + " missing from an order");
+    }
+
+    interface Probe {
+        int compareTo(int index);   // sign of (target - employee at index)
+    }
+
+    // First position whose employee does not sort before the target.
+    private static int lowerBound(int[] permutation, int size, Probe target) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (target.compareTo(permutation[mid]) > 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // The first four chars of the name, zero padded, as an unsigned long: names with
+    // different prefixes compare like their prefixes.
+    static long namePrefix(String name) {
+        long key = 0;
+        for (int i = 0; i < 4; i++) key = key << 16 | (i < name.length() ? name.charAt(i) : 0);
+        return key;
+    }
+
+    // Long whose signed order matches Double.compare.
+    static long sortableBits(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    // Stable LSD radix sort of items by the signed key[item], 16 bits a pass; passes where
+    // every key has the same digit are skipped.
+    static int[] radixSort(int[] items, int[] keys) {
+        long[] wide = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) wide[i] = (keys[i] ^ Integer.MIN_VALUE) & 0xFFFFFFFFL;
+        return radixSort(items, wide, 2);
+    }
+
+    static int[] radixSort(int[] items, long[] keys) {
+        long[] flipped = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) flipped[i] = keys[i] ^ Long.MIN_VALUE;
+        return radixSort(items, flipped, 4);
+    }
+
+    // keys are compared as unsigned; only the low passes * 16 bits are used.
+    static int[] radixSort(int[] items, long[] keys, int passes) {
+        int n = items.length;
+        int[] from = items.clone();
+        int[] to = new int[n];
+        int[] counts = new int[1 << 16];
+        for (int pass = 0; pass < passes; pass++) {
+            int shift = pass * 16;
+            Arrays.fill(counts, 0);
+            for (int item : from) counts[(int) (keys[item] >>> shift) & 0xFFFF]++;
+            if (n == 0 || counts[(int) (keys[from[0]] >>> shift) & 0xFFFF] == n) continue;
+            int sum = 0;
+            for (int d = 0; d < counts.length; d++) {
+                int c = counts[d];
+                counts[d] = sum;
+                sum += c;
+            }
+            for (int item : from) to[counts[(int) (keys[item] >>> shift) & 0xFFFF]++] = item;
+            int[] swap = from;
+            from = to;
+            to = swap;
+        }
+        return from;
+    }
+
+    // Stable merge sort of a[from, to).
+    static void mergeSort(int[] a, int from, int to, IndexComparator order) {
+        int[] buffer = new int[to - from];
+        for (int width = 1; width < to - from; width *= 2) {
+            for (int lo = from; lo < to - width; lo += 2 * width) {
+                int mid = lo + width, hi = Math.min(lo + 2 * width, to);
+                if (order.compare(a[mid - 1], a[mid]) <= 0) continue;   // already in order
+                System.arraycopy(a, lo, buffer, lo - from, hi - lo);
+                int i = lo - from, j = mid - from, k = lo;
+                int iEnd = mid - from, jEnd = hi - from;
+                while (i < iEnd && j < jEnd) a[k++] = order.compare(buffer[j], buffer[i]) < 0 ? buffer[j++] : buffer[i++];
+                while (i < iEnd) a[k++] = buffer[i++];
+                while (j < jEnd) a[k++] = buffer[j++];
+            }
+        }
+    }
+}
@@ -1,87 +1,233 @@
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
-class Video{
-    private String title;
-    private boolean isChecked;
-    private float rating;
-    public Video(String title){
-        this.title=title;
-        this.isChecked=false;
-        this.rating=0;
-    }
-    public String getTitle(){
-        return title;
-    }
-    public boolean isCheckedOut(){
-        return isChecked;
-    }
-    public float getRating(){
-        return rating;
-    }
-    public void returnVideo(){
-        this.isChecked=false;
-    }
-    public void checkOut(){
-        this.isChecked=true;
-    }
-    public void giveRating(float rating){
-        this.rating=rating;
-    }
-}
-class VideoStore{
-    private int size;
-    private Video[] list;
-    public VideoStore(){
-        list=new Video[10];
-        size=0;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+public class Exp2 {
+    //Running count, mean and variance of a title's ratings (Welford's method), so every
+    //rating event is kept in the aggregate without storing the history.
+    static class RatingStats{
+        private long count;
+        private double mean;
+        private double m2;
+        synchronized void add(double rating){
+            count++;
+            double delta=rating-mean;
+            mean+=delta/count;
+            m2+=delta*(rating-mean);
+        }
+        synchronized long getCount(){
+            return count;
+        }
+        synchronized double getMean(){
+            return mean;
+        }
+        synchronized double getVariance(){
+            return count<2?0:m2/(count-1);
+        }
     }
-    void addVideo(String video){
-        if(size<10){
-            list[size++]=new Video(video);
+    static class Video{
+        //The store a copy belongs to, told when the copy leaves or comes back to the shelf
+        //and when the title is rated, so its counts and ranking stay current.
+        interface Owner{
+            void shelved(int delta);
+            void rated();
         }
-        else{
-            System.out.println("Playlist is full.");
+        private String title;
+        private final AtomicBoolean isChecked=new AtomicBoolean(false);
+        private final RatingStats ratings;
+        private final Owner owner;
+        public Video(String title){
+            this(title,new RatingStats(),null);
+        }
+        Video(String title,RatingStats ratings,Owner owner){
+            this.title=title;
+            this.ratings=ratings;
+            this.owner=owner;
+        }
+        public String getTitle(){
+            return title;
+        }
+        public boolean isCheckedOut(){
+            return isChecked.get();
+        }
+        //Mean of all ratings received for the title.
+        public float getRating(){
+            return (float)ratings.getMean();
+        }
+        public void returnVideo(){
+            tryReturn();
+        }
+        public void checkOut(){
+            tryCheckOut();
+        }
+        //Atomic versions: only one of several concurrent renters can flip the flag.
+        public boolean tryCheckOut(){
+            if(!isChecked.compareAndSet(false,true)) return false;
+            if(owner!=null) owner.shelved(-1);
+            return true;
+        }
+        public boolean tryReturn(){
+            if(!isChecked.compareAndSet(true,false)) return false;
+            if(owner!=null) owner.shelved(1);
+            return true;
+        }
+        //Adds one rating event to the title's running statistics.
+        public void giveRating(float rating){
+            ratings.add(rating);
+            if(owner!=null) owner.rated();
         }
     }
-    void returnVideo(String video){
-        for(int i=0;i<size;i++){
-            if(list[i].getTitle().equals(video) && list[i].isCheckedOut()){
-                list[i].returnVideo();
+    //Unbounded store indexed by title; each title keeps its copies and rating statistics.
+    //Titles with a copy on the shelf are also kept in a skip list ordered by mean rating,
+    //so the best available titles are read off its head instead of sorting the store.
+    static class VideoStore{
+        private class Title implements Video.Owner{
+            final String name;
+            final CopyOnWriteArrayList<Video> copies=new CopyOnWriteArrayList<>();
+            final RatingStats ratings=new RatingStats();
+            final AtomicInteger available=new AtomicInteger();
+            Rank rank;   //entry in the ranking, null when no copy is available
+            Title(String name){
+                this.name=name;
+            }
+            //The ranking only changes when the title runs out or gets its first copy back.
+            public void shelved(int delta){
+                int before=available.getAndAdd(delta);
+                if(before==0||before+delta==0) rerank(this);
+            }
+            public void rated(){
+                rerank(this);
+            }
+        }
+        //Immutable ranking key: a title's mean at the time it was (re)inserted.
+        private static class Rank implements Comparable<Rank>{
+            final Title title;
+            final double mean;
+            Rank(Title title,double mean){
+                this.title=title;
+                this.mean=mean;
+            }
+            public int compareTo(Rank other){
+                int byMean=Double.compare(other.mean,mean);
+                return byMean!=0?byMean:title.name.compareTo(other.title.name);
+            }
+        }
+        private final ConcurrentHashMap<String,Title> titles=new ConcurrentHashMap<>();
+        private final CopyOnWriteArrayList<Title> order=new CopyOnWriteArrayList<>();
+        private final ConcurrentSkipListSet<Rank> ranking=new ConcurrentSkipListSet<>();
+        private final AtomicInteger size=new AtomicInteger();
+        public VideoStore(){
+        }
+        void addVideo(String video){
+            addVideo(video,1);
+        }
+        void addVideo(String video,int count){
+            Title title=titles.computeIfAbsent(video,t->{
+                Title created=new Title(t);
+                order.add(created);
+                return created;
+            });
+            for(int i=0;i<count;i++){
+                title.copies.add(new Video(video,title.ratings,title));
+            }
+            size.addAndGet(count);
+            title.shelved(count);
+        }
+        int size(){
+            return size.get();
+        }
+        //Rents one free copy; false when the title is unknown or every copy is out.
+        boolean rent(String video){
+            Title title=titles.get(video);
+            if(title==null) return false;
+            for(Video copy:title.copies){
+                if(copy.tryCheckOut()) return true;
+            }
+            return false;
+        }
+        //Returns one rented copy; false when no copy of the title is out.
+        boolean giveBack(String video){
+            Title title=titles.get(video);
+            if(title==null) return false;
+            for(Video copy:title.copies){
+                if(copy.tryReturn()) return true;
+            }
+            return false;
+        }
+        void returnVideo(String video){
+            if(giveBack(video)){
                 System.out.println("Video with title "+video+" is returned.");
                 return;
             }
+            System.out.println("Video not found.");
         }
-        System.out.println("Video not found.");
-    }
-    void checkOut(String video){
-        for(int i=0;i<size;i++){
-            if(list[i].getTitle().equals(video) && !list[i].isCheckedOut()){
-                list[i].checkOut();
+        void checkOut(String video){
+            if(rent(video)){
                 System.out.println("Video with title "+video+" is rented out.");
                 return;
             }
+            System.out.println("Video not found.");
         }
-        System.out.println("Video not found.");
-    }
-    void receiveRating(String video, float rat){
-        for(int i=0;i<size;i++){
-            if(list[i].getTitle().equals(video)){
-                list[i].giveRating(rat);
+        //Ingests one rating event for the title.
+        void receiveRating(String video, float rat){
+            Title title=titles.get(video);
+            if(title==null){
+                System.out.println("Video not found.");
                 return;
             }
+            title.ratings.add(rat);
+            title.rated();
         }
-        System.out.println("Video not found.");
-    }
-    void listInventory(){
-        for(int i=0;i<size;i++){
-            if(!list[i].isCheckedOut()){
-                System.out.print("Title of the video is: "+list[i].getTitle());
-                System.out.print(" and its rating is: "+list[i].getRating());
-                System.out.println();
+        RatingStats ratings(String video){
+            Title title=titles.get(video);
+            return title==null?null:title.ratings;
+        }
+        //Up to limit titles with a copy on the shelf, best mean rating first.
+        List<String> bestAvailable(int limit){
+            List<String> result=new ArrayList<>();
+            for(Rank rank:ranking){
+                if(result.size()==limit) break;
+                result.add(rank.title.name);
+            }
+            return result;
+        }
+        void listInventory(){
+            for(Title title:order){
+                for(Video copy:title.copies){
+                    if(!copy.isCheckedOut()){
+                        System.out.print("Title of the video is: "+copy.getTitle());
+                        System.out.print(" and its rating is: "+copy.getRating());
+                        System.out.println();
+                    }
+                }
+            }
+        }
+        //Available titles, best rated first, straight from the ranking.
+        void listInventoryByRating(int limit){
+            for(String video:bestAvailable(limit)){
+                Title title=titles.get(video);
+                System.out.print("Title of the video is: "+video);
+                System.out.print(" and its rating is: "+(float)title.ratings.getMean());
+                System.out.println(" ("+title.ratings.getCount()+" ratings, "+title.available.get()+" available)");
+            }
+        }
+        //Moves the title to its current place in the ranking, or out of it when no copy is
+        //available. Serialized per title so concurrent updates cannot leave a stale entry.
+        private void rerank(Title title){
+            synchronized(title){
+                if(title.rank!=null) ranking.remove(title.rank);
+                title.rank=null;
+                if(title.available.get()>0){
+                    title.rank=new Rank(title,title.ratings.getMean());
+                    ranking.add(title.rank);
+                }
             }
         }
     }
-}
-public class Exp2 {
     public static void main(String[] args){
         Scanner in=new Scanner(System.in);
         VideoStore playlist=new VideoStore();
@@ -99,6 +245,8 @@ public class Exp2 {
         playlist.checkOut(title);
         System.out.println("Videos in the playlist are:");
         playlist.listInventory();
+        System.out.println("Available videos by rating:");
+        playlist.listInventoryByRating(10);
         in.close();
     }
 }
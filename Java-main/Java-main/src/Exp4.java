@@ -1,23 +1,60 @@
-import java.util.ArrayList;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
 import java.util.Scanner;
-class Employee {
-    int id;
-    String name;
-    double salary;
-    public Employee(int id, String name, double salary) {
-        this.id = id;
-        this.name = name;
-        this.salary = salary;
-    }
-    @Override
-    public String toString() {
-        return "ID: " + id + ", Name: " + name + ", Salary: " + salary;
-    }
-}
 public class Exp4 {
-    private static ArrayList<Employee> employees = new ArrayList<>();
+    static class Employee implements EmployeeFields {
+        int id;
+        String name;
+        int age;
+        double salary;
+        public Employee(int id, String name, int age, double salary) {
+            this.id = id;
+            this.name = name;
+            this.age = age;
+            this.salary = salary;
+        }
+        public String getName() {
+            return name;
+        }
+        public int getAge() {
+            return age;
+        }
+        public double getSalary() {
+            return salary;
+        }
+        public void set(String name, int age, double salary) {
+            this.name = name;
+            this.age = age;
+            this.salary = salary;
+        }
+        @Override
+        public String toString() {
+            return "ID: " + id + ", Name: " + name + ", Age: " + age + ", Salary: " + salary;
+        }
+    }
+    private static EmployeeRepository employees = new EmployeeRepository();
+    private static EmployeeQuery<Employee> query = new EmployeeQuery<>();
+    private static EmployeeStore store;
     private static Scanner scanner = new Scanner(System.in);
-    public static void main(String[] args) {
+    // Usage: Exp4                   interactive menu
+    //        Exp4 --batch [file]     commands from the file, or stdin (see EmployeeBatch)
+    public static void main(String[] args) throws IOException {
+        store = EmployeeStore.open(EmployeeStore.defaultDirectory());
+        if (args.length > 0 && args[0].equals("--batch")) {
+            runBatch(args.length > 1 ? args[1] : "-");
+            return;
+        }
+        store.forEach(employee -> {
+            employees.add(employee);
+            query.add(employee);
+        });
         while (true) {
             System.out.println("\nEmployee Management System");
             System.out.println("1. Add Employee");
@@ -25,7 +62,10 @@ public class Exp4 {
             System.out.println("3. Remove Employee");
             System.out.println("4. Search Employee");
             System.out.println("5. Display All Employees");
-            System.out.println("6. Exit");
+            System.out.println("6. Salary Band Report");
+            System.out.println("7. Age Band Report");
+            System.out.println("8. Top Earners");
+            System.out.println("9. Exit");
             System.out.print("Choose an option: ");
             int choice = scanner.nextInt();
             scanner.nextLine();  
@@ -46,6 +86,16 @@ public class Exp4 {
                     displayAllEmployees();
                     break;
                 case 6:
+                    salaryBandReport();
+                    break;
+                case 7:
+                    ageBandReport();
+                    break;
+                case 8:
+                    topEarners();
+                    break;
+                case 9:
+                    store.close();
                     System.out.println("Exiting...");
                     System.exit(0);
                 default:
@@ -53,39 +103,75 @@ public class Exp4 {
             }
         }
     }
-    private static void addEmployee() {
+    private static void runBatch(String file) throws IOException {
+        InputStream in = file.equals("-") ? System.in : Files.newInputStream(Paths.get(file));
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+        long start = System.nanoTime();
+        long commands;
+        try {
+            commands = EmployeeBatch.run(store, in, out);
+        } finally {
+            in.close();
+            store.close();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("%,d commands in %.2f s (%,.0f ops/s)%n", commands, seconds, commands / seconds);
+    }
+    private static void addEmployee() throws IOException {
         System.out.print("Enter Employee ID: ");
         int id = scanner.nextInt();
         scanner.nextLine();  
+        if (employees.contains(id)) {
+            System.out.println("An employee with ID " + id + " already exists.");
+            return;
+        }
         System.out.print("Enter Employee Name: ");
         String name = scanner.nextLine();
+        int age = readAge("Enter Employee Age: ");
         System.out.print("Enter Employee Salary: ");
         double salary = scanner.nextDouble();
-        Employee employee = new Employee(id, name, salary);
+        Employee employee = new Employee(id, name, age, salary);
+        try {
+            store.add(employee);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
         employees.add(employee);
+        query.add(employee);
         System.out.println("Employee added successfully.");
     }
-    private static void updateEmployee() {
+    private static void updateEmployee() throws IOException {
         System.out.print("Enter Employee ID to update: ");
         int id = scanner.nextInt();
         scanner.nextLine();  
         Employee employee = findEmployeeById(id);
         if (employee != null) {
             System.out.print("Enter new name: ");
-            employee.name = scanner.nextLine();
+            String name = scanner.nextLine();
+            int age = readAge("Enter new age: ");
             System.out.print("Enter new salary: ");
-            employee.salary = scanner.nextDouble();
+            double salary = scanner.nextDouble();
+            try {
+                store.update(new Employee(id, name, age, salary));
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+                return;
+            }
+            query.update(employee, name, age, salary);
             System.out.println("Employee updated successfully.");
         } else {
             System.out.println("Employee not found.");
         }
     }
-    private static void removeEmployee() {
+    private static void removeEmployee() throws IOException {
         System.out.print("Enter Employee ID to remove: ");
         int id = scanner.nextInt();
-        Employee employee = findEmployeeById(id);
+        Employee employee = employees.get(id);
         if (employee != null) {
-            employees.remove(employee);
+            store.remove(id);
+            employees.remove(id);
+            query.remove(employee);
             System.out.println("Employee removed successfully.");
         } else {
             System.out.println("Employee not found.");
@@ -102,22 +188,56 @@ public class Exp4 {
         }
     }
     private static Employee findEmployeeById(int id) {
-        for (Employee employee : employees) {
-            if (employee.id == id) {
-                return employee;
-            }
-        }
-        return null;
+        return employees.get(id);
     }
     private static void displayAllEmployees() {
         if (employees.isEmpty()) {
             System.out.println("No employees to display.");
         } else {
             System.out.println("Employee List:");
-            for (Employee employee : employees) {
-                System.out.println(employee);
+            employees.forEach(System.out::println);
+        }
+    }
+    private static void salaryBandReport() {
+        System.out.print("Enter minimum salary: ");
+        double min = scanner.nextDouble();
+        System.out.print("Enter maximum salary: ");
+        double max = scanner.nextDouble();
+        printBand(query.salaryBand(min, max), query.salaryStats(min, max));
+    }
+    private static void ageBandReport() {
+        int min = readAge("Enter minimum age: ");
+        int max = readAge("Enter maximum age: ");
+        printBand(query.ageBand(min, max), query.ageStats(min, max));
+    }
+    private static void topEarners() {
+        System.out.print("How many employees: ");
+        int k = scanner.nextInt();
+        List<Employee> top = query.topEarners(k);
+        if (top.isEmpty()) {
+            System.out.println("No employees to display.");
+        } else {
+            System.out.println("Top Earners:");
+            top.forEach(System.out::println);
+        }
+    }
+    private static void printBand(List<Employee> band, EmployeeQuery.Stats stats) {
+        if (band.isEmpty()) {
+            System.out.println("No employees in this band.");
+            return;
+        }
+        band.forEach(System.out::println);
+        System.out.println("Salary: " + stats);
+    }
+    private static int readAge(String prompt) {
+        while (true) {
+            System.out.print(prompt);
+            int age = scanner.nextInt();
+            scanner.nextLine();
+            if (age >= 0 && age <= EmployeeQuery.MAX_AGE) {
+                return age;
             }
+            System.out.println("Age must be between 0 and " + EmployeeQuery.MAX_AGE + ".");
         }
     }
 }
-
@@ -1,43 +1,80 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.util.*;
 
-class Employee {
-    String name;
-    int age;
-    double salary;
-    public Employee(String name, int age, double salary) {
-        this.name = name;
-        this.age = age;
-        this.salary = salary;
-    }
-    public String getName() {
-        return name;
-    }
-    public int getAge() {
-        return age;
-    }
-    public double getSalary() {
-        return salary;
-    }
-    @Override
-    public String toString() {
-        return "Employee{name='" + name + "', age=" + age + ", salary=" + salary + "}";
-    }
-}
 public class Exp6{
-    public static void main(String[] args) {
+    static class Employee implements EmployeeFields {
+        String name;
+        int age;
+        double salary;
+        public Employee(String name, int age, double salary) {
+            this.name = name;
+            this.age = age;
+            this.salary = salary;
+        }
+        public String getName() {
+            return name;
+        }
+        public int getAge() {
+            return age;
+        }
+        public double getSalary() {
+            return salary;
+        }
+        public void set(String name, int age, double salary) {
+            this.name = name;
+            this.age = age;
+            this.salary = salary;
+        }
+        @Override
+        public String toString() {
+            return "Employee{name='" + name + "', age=" + age + ", salary=" + salary + "}";
+        }
+    }
+    // Usage: Exp6                                        the demo roster
+    //        Exp6 --sort name|age|salary input [output]  external sort of name,age,salary lines
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 3 && args[0].equals("--sort")) {
+            sortFile(args);
+            return;
+        }
         List<Employee> employees = new ArrayList<>();
         employees.add(new Employee("John", 30, 50000));
         employees.add(new Employee("Alice", 28, 60000));
         employees.add(new Employee("Bob", 35, 45000));
         employees.add(new Employee("David", 40, 70000));
-        employees.sort((e1, e2) -> e1.getName().compareTo(e2.getName()));
+        EmployeeViews views = new EmployeeViews();
+        views.addAll(employees);
         System.out.println("Employees sorted by name:");
-        employees.forEach(System.out::println);
-        employees.sort((e1, e2) -> Integer.compare(e1.getAge(), e2.getAge()));
+        views.byName().forEach(System.out::println);
         System.out.println("\nEmployees sorted by age:");
-        employees.forEach(System.out::println);
-        employees.sort((e1, e2) -> Double.compare(e2.getSalary(), e1.getSalary()));
+        views.byAge().forEach(System.out::println);
         System.out.println("\nEmployees sorted by salary:");
-        employees.forEach(System.out::println);
+        views.bySalary().forEach(System.out::println);
+        EmployeeQuery<Employee> query = new EmployeeQuery<>();
+        employees.forEach(query::add);
+        System.out.println("\nTop 2 earners:");
+        query.topEarners(2).forEach(System.out::println);
+        System.out.println("\nEmployees aged 25-35:");
+        query.ageBand(25, 35).forEach(System.out::println);
+        System.out.println("Salary: " + query.ageStats(25, 35));
+    }
+    // Chunk size (employees held per sorted run) can be set with -Dsort.chunk.
+    static void sortFile(String[] args) throws IOException {
+        EmployeeExternalSort sorter = new EmployeeExternalSort(EmployeeExternalSort.order(args[1]),
+            Integer.getInteger("sort.chunk", EmployeeExternalSort.DEFAULT_CHUNK), null);
+        long start = System.nanoTime();
+        long[] count = {0};
+        try (BufferedReader in = Files.newBufferedReader(Paths.get(args[2]), StandardCharsets.UTF_8);
+             Writer out = args.length > 3 ? Files.newBufferedWriter(Paths.get(args[3]), StandardCharsets.UTF_8)
+                 : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16)) {
+            sorter.sort(EmployeeExternalSort.readCsv(in), employee -> {
+                EmployeeExternalSort.writeCsv(out, employee);
+                count[0]++;
+            });
+        }
+        System.err.printf("Sorted %,d employees in %.1f s (%d runs)%n", count[0],
+            (System.nanoTime() - start) / 1e9, sorter.runs());
     }
 }
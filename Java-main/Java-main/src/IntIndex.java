@@ -0,0 +1,111 @@
+import java.util.Arrays;
+
+// Open-addressing hash map from int keys to non-negative int values, without boxing.
+// Linear probing with backward-shift deletion, so removals leave no tombstones and
+// lookups never slow down as entries come and go.
+class IntIndex {
+    static final int MISSING = -1;
+
+    private int[] keys;
+    private int[] values;      // MISSING marks an empty bucket
+    private int size;
+
+    IntIndex() {
+        this(16);
+    }
+
+    IntIndex(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(expected, 8) * 2 - 1) * 2;
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, MISSING);
+    }
+
+    // Value for the key, or MISSING.
+    int get(int key) {
+        int bucket = find(key);
+        return bucket < 0 ? MISSING : values[bucket];
+    }
+
+    boolean contains(int key) {
+        return find(key) >= 0;
+    }
+
+    // Maps the key to value (>= 0); returns the previous value or MISSING.
+    int put(int key, int value) {
+        if (value < 0) throw new IllegalArgumentException("negative value " + value);
+        int bucket = find(key);
+        if (bucket >= 0) {
+            int old = values[bucket];
+            values[bucket] = value;
+            return old;
+        }
+        if ((size + 1) * 2 > keys.length) rehash(keys.length * 2);
+        insert(key, value);
+        size++;
+        return MISSING;
+    }
+
+    // Returns the removed value, or MISSING when the key was not there.
+    int remove(int key) {
+        int bucket = find(key);
+        if (bucket < 0) return MISSING;
+        int old = values[bucket];
+        delete(bucket);
+        size--;
+        return old;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int find(int key) {
+        int mask = keys.length - 1;
+        for (int bucket = hash(key) & mask; values[bucket] != MISSING; bucket = (bucket + 1) & mask) {
+            if (keys[bucket] == key) return bucket;
+        }
+        return -1;
+    }
+
+    private void insert(int key, int value) {
+        int mask = keys.length - 1;
+        int bucket = hash(key) & mask;
+        while (values[bucket] != MISSING) bucket = (bucket + 1) & mask;
+        keys[bucket] = key;
+        values[bucket] = value;
+    }
+
+    // Later entries of the probe run move up into the hole.
+    private void delete(int bucket) {
+        int mask = keys.length - 1;
+        int hole = bucket;
+        for (int next = (hole + 1) & mask; values[next] != MISSING; next = (next + 1) & mask) {
+            int home = hash(keys[next]) & mask;
+            // Move the entry unless its home lies cyclically in (hole, next].
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        values[hole] = MISSING;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, MISSING);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != MISSING) insert(oldKeys[i], oldValues[i]);
+        }
+    }
+
+    // Spreads sequential keys across the table.
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,100 @@
+import java.util.SplittableRandom;
+
+// Nightly accrual run over generated accounts. Times the per-object Account path
+// (on up to 2M accounts) and InterestEngine on an AccountTable: scalar, scalar with a
+// parallel stream, and, when available, the Vector API kernel sequential and parallel.
+// Every variant is checked bit for bit against calculateInterest() or the scalar run.
+// Usage: java [--add-modules jdk.incubator.vector] InterestBenchmark [accounts]
+//        (default 10000000; give the JVM about 1 GB)
+public class InterestBenchmark {
+    private static final int OBJECT_LIMIT = 2_000_000;
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        AccountTable table = generate(n, 42);
+        int sample = Math.min(n, OBJECT_LIMIT);
+        Exp3.Account[] accounts = new Exp3.Account[sample];
+        for (int i = 0; i < sample; i++) accounts[i] = toAccount(table, i);
+
+        RateResolver resolver = RateResolver.shared();
+        InterestEngine scalar = new InterestEngine(resolver);
+        InterestEngine.Kernel vectorKernel = InterestEngine.vectorKernel();
+        InterestEngine vector = vectorKernel == null ? null : new InterestEngine(resolver, vectorKernel);
+        System.out.printf("%,d accounts, vector kernel %s%n", n,
+            vector == null ? "unavailable (compile src-vector and run with --add-modules jdk.incubator.vector)" : "loaded");
+
+        double[] objects = new double[sample];
+        double[] expected = new double[n];
+        double[] actual = new double[n];
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < sample; i++) objects[i] = accounts[i].calculateInterest();
+            long objectNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            scalar.compute(table, expected, 0, n);
+            long scalarNanos = System.nanoTime() - start;
+            int mismatches = mismatches(objects, expected, sample);
+
+            start = System.nanoTime();
+            scalar.computeAll(table, actual);
+            long parallelNanos = System.nanoTime() - start;
+            mismatches += mismatches(expected, actual, n);
+
+            StringBuilder line = new StringBuilder(String.format(
+                "round %d: objects %6.1f ns/acct, scalar %6.2f, parallel %6.2f", round,
+                (double) objectNanos / sample, (double) scalarNanos / n, (double) parallelNanos / n));
+            if (vector != null) {
+                start = System.nanoTime();
+                vector.compute(table, actual, 0, n);
+                long vectorNanos = System.nanoTime() - start;
+                mismatches += mismatches(expected, actual, n);
+
+                start = System.nanoTime();
+                vector.computeAll(table, actual);
+                long vectorParallelNanos = System.nanoTime() - start;
+                mismatches += mismatches(expected, actual, n);
+                line.append(String.format(", vector %6.2f, vector parallel %6.2f",
+                    (double) vectorNanos / n, (double) vectorParallelNanos / n));
+            }
+            System.out.println(line.append(", ").append(mismatches).append(" mismatches"));
+        }
+    }
+
+    static AccountTable generate(int n, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        AccountTable table = new AccountTable();
+        short senior = table.typeCode("Senior");
+        short general = table.typeCode("General");
+        for (int i = 0; i < n; i++) {
+            double amount = random.nextInt(10) == 0 ? random.nextDouble(1e7, 5e7) : random.nextDouble(1_000, 1e7);
+            short type = random.nextInt(3) == 0 ? senior : general;
+            int age = random.nextInt(18, 95);
+            if (random.nextInt(20) == 0) {
+                table.add(amount, type, age, AccountTable.NONE, 0);
+            } else if (random.nextBoolean()) {
+                table.add(amount, type, age, AccountTable.FD, random.nextInt(7, 3650));
+            } else {
+                table.add(amount, type, age, AccountTable.RD, random.nextInt(6, 120));
+            }
+        }
+        return table;
+    }
+
+    static Exp3.Account toAccount(AccountTable table, int row) {
+        String type = table.typeName(table.type[row]);
+        switch (table.product[row]) {
+            case AccountTable.FD: return new Exp3.FDAccount(table.amount[row], type, table.age[row], table.term[row]);
+            case AccountTable.RD: return new Exp3.RDAccount(table.amount[row], type, table.age[row], table.term[row]);
+            default: return new Exp3.Account(table.amount[row], type, table.age[row]);
+        }
+    }
+
+    static int mismatches(double[] expected, double[] actual, int n) {
+        int bad = 0;
+        for (int i = 0; i < n; i++) {
+            if (Double.doubleToRawLongBits(expected[i]) != Double.doubleToRawLongBits(actual[i])) bad++;
+        }
+        return bad;
+    }
+}
@@ -0,0 +1,102 @@
+import java.util.stream.IntStream;
+
+// Batch interest computation over an AccountTable. The rate rules are taken from a
+// RateResolver once per batch, and the table's account types are mapped to rule type
+// indexes once, so the per-row work is the compiled-table lookup and the product's
+// formula. Rows are split into chunks computed in parallel on the common fork/join
+// pool. Each result is computed with the same operations in the same order as
+// Account.calculateInterest(), so it is bit-for-bit identical to the object path.
+//
+// The per-chunk loop is a Kernel. The scalar kernel below always works; a SIMD kernel
+// (InterestVectorKernel in src-vector, built on jdk.incubator.vector) is used when
+// asked for and when that class and module are present at run time.
+class InterestEngine {
+    static final int CHUNK = 1 << 16;
+
+    // Divisor of (amount * rate * term) per product code; NONE earns no interest.
+    static final double[] DIVISOR = {0, 365, 12};
+
+    // Computes rows [from, to) of the table into out. types maps table type codes to
+    // rule type indexes.
+    interface Kernel {
+        void compute(AccountTable table, RateResolver.Rules rules, int[] types, double[] out, int from, int to);
+    }
+
+    static final Kernel SCALAR = InterestEngine::computeScalar;
+
+    private final RateResolver resolver;
+    private final Kernel kernel;
+
+    InterestEngine() {
+        this(RateResolver.shared());
+    }
+
+    InterestEngine(RateResolver resolver) {
+        this(resolver, SCALAR);
+    }
+
+    InterestEngine(RateResolver resolver, Kernel kernel) {
+        this.resolver = resolver;
+        this.kernel = kernel;
+    }
+
+    // The SIMD kernel, or null when the JVM was not started with
+    // --add-modules jdk.incubator.vector or the class was not compiled (see src-vector).
+    static Kernel vectorKernel() {
+        try {
+            return (Kernel) Class.forName("InterestVectorKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    Kernel kernel() {
+        return kernel;
+    }
+
+    double[] computeAll(AccountTable table) {
+        double[] interest = new double[table.size()];
+        computeAll(table, interest);
+        return interest;
+    }
+
+    // Writes the interest of every row into out, in parallel.
+    void computeAll(AccountTable table, double[] out) {
+        RateResolver.Rules rules = resolver.current();
+        int[] types = typeIndexes(table, rules);
+        int n = table.size();
+        int chunks = (n + CHUNK - 1) / CHUNK;
+        IntStream.range(0, chunks).parallel()
+            .forEach(c -> kernel.compute(table, rules, types, out, c * CHUNK, Math.min(n, (c + 1) * CHUNK)));
+    }
+
+    // Writes the interest of rows [from, to) into out on the calling thread.
+    void compute(AccountTable table, double[] out, int from, int to) {
+        RateResolver.Rules rules = resolver.current();
+        kernel.compute(table, rules, typeIndexes(table, rules), out, from, to);
+    }
+
+    private static void computeScalar(AccountTable table, RateResolver.Rules rules, int[] types,
+                                      double[] out, int from, int to) {
+        double[] amount = table.amount;
+        int[] age = table.age;
+        int[] term = table.term;
+        byte[] product = table.product;
+        short[] type = table.type;
+        for (int i = from; i < to; i++) {
+            int p = product[i];
+            if (p == AccountTable.NONE) {
+                out[i] = 0;
+                continue;
+            }
+            double rate = rules.rate(p, types[type[i]], age[i], amount[i]);
+            out[i] = (amount[i] * rate * term[i]) / DIVISOR[p];
+        }
+    }
+
+    private static int[] typeIndexes(AccountTable table, RateResolver.Rules rules) {
+        int[] types = new int[table.typeCount()];
+        for (int code = 0; code < types.length; code++) types[code] = rules.typeIndex(table.typeName(code));
+        return types;
+    }
+}
@@ -0,0 +1,186 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Client for LibraryServer's HTTP/JSON API. Thread-safe; one instance can be shared.
+class LibraryClient {
+    private final HttpClient http = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+    private final String base;
+
+    LibraryClient(String baseUrl) {
+        this.base = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    // The book with its server version, or null when the server does not have it.
+    BookCatalog.Record get(String id) throws IOException {
+        HttpResponse<InputStream> response = send(request("/books/" + encode(id)).GET());
+        if (response.statusCode() == 404) {
+            response.body().close();
+            return null;
+        }
+        List<String[]> books = readBooks(check(response));
+        if (books.isEmpty()) return null;
+        long version = parseVersion(response.headers().firstValue("ETag").orElse("0"));
+        return new BookCatalog.Record(books.get(0), version, 0);
+    }
+
+    // Adds or updates the book. Returns true when it was new on the server.
+    boolean put(String[] book) throws IOException {
+        HttpResponse<InputStream> response = send(bookRequest(book));
+        check(response).close();
+        return response.statusCode() == 201;
+    }
+
+    // Like BookCatalog.replace: writes only if the server's copy is still at
+    // expectedVersion (0 = must not exist). Returns false when it was changed meanwhile.
+    boolean replace(String[] book, long expectedVersion) throws IOException {
+        HttpRequest.Builder request = bookRequest(book);
+        if (expectedVersion == 0) request.header("If-None-Match", "*");
+        else request.header("If-Match", "\"" + expectedVersion + "\"");
+        HttpResponse<InputStream> response = send(request);
+        if (response.statusCode() == 412) {
+            response.body().close();
+            return false;
+        }
+        check(response).close();
+        return true;
+    }
+
+    // Adds or updates all the books in one request.
+    void putAll(List<String[]> books) throws IOException {
+        StringBuilder json = new StringBuilder(books.size() * 200).append('[');
+        for (int i = 0; i < books.size(); i++) {
+            if (i > 0) json.append(',');
+            BookJson.writeBook(json, books.get(i));
+        }
+        json.append(']');
+        check(send(request("/books")
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(json.toString(), StandardCharsets.UTF_8)))).close();
+    }
+
+    // Returns false when the server did not have the book.
+    boolean delete(String id) throws IOException {
+        HttpResponse<InputStream> response = send(request("/books/" + encode(id)).DELETE());
+        if (response.statusCode() == 404) {
+            response.body().close();
+            return false;
+        }
+        check(response).close();
+        return true;
+    }
+
+    List<String[]> search(String text, int limit) throws IOException {
+        return readBooks(check(send(request("/search?q=" + encode(text) + "&limit=" + limit).GET())));
+    }
+
+    List<String[]> list(int offset, int limit) throws IOException {
+        return readBooks(check(send(request("/books?offset=" + offset + "&limit=" + limit).GET())));
+    }
+
+    // Every book on the server in one response, all from the same version of its
+    // catalog (pages fetched one by one would skip or repeat books moved by writes).
+    List<String[]> listAll() throws IOException {
+        return readBooks(check(send(request("/books?all=true").GET())));
+    }
+
+    // Checks out a copy. With wait, joins the waitlist when none is free. Returns the
+    // loan, or null when no copy was lent (queued, or none available).
+    BookLoanEngine.Loan checkOut(String bookId, String borrower, boolean wait) throws IOException {
+        StringBuilder json = new StringBuilder("{\"book\":");
+        BookJson.writeString(json, bookId);
+        json.append(",\"borrower\":");
+        BookJson.writeString(json, borrower);
+        json.append(",\"wait\":\"").append(wait).append("\"}");
+        HttpResponse<InputStream> response = send(request("/loans")
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(json.toString(), StandardCharsets.UTF_8)));
+        if (response.statusCode() == 409) {
+            response.body().close();
+            return null;
+        }
+        try (InputStreamReader in = new InputStreamReader(check(response), StandardCharsets.UTF_8)) {
+            Map<String, String> object = new BookJson.ObjectReader(in).next();
+            return response.statusCode() == 201 ? BookLoanEngine.Loan.fromJson(object) : null;
+        }
+    }
+
+    // Returns false when the server had no such active loan.
+    boolean returnLoan(long loanId) throws IOException {
+        HttpResponse<InputStream> response = send(request("/loans/" + loanId).DELETE());
+        if (response.statusCode() == 404) {
+            response.body().close();
+            return false;
+        }
+        check(response).close();
+        return true;
+    }
+
+    private HttpRequest.Builder bookRequest(String[] book) {
+        return request("/books/" + encode(book[BookCatalog.ID]))
+            .header("Content-Type", "application/json")
+            .PUT(HttpRequest.BodyPublishers.ofString(BookJson.toJson(book), StandardCharsets.UTF_8));
+    }
+
+    private static long parseVersion(String etag) {
+        try {
+            return Long.parseLong(etag.replace("\"", "").trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(base + path)).timeout(Duration.ofSeconds(30));
+    }
+
+    private HttpResponse<InputStream> send(HttpRequest.Builder request) throws IOException {
+        try {
+            return http.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Request to " + base + " was interrupted");
+        }
+    }
+
+    // The response body when the status is 2xx; otherwise the server's error as an IOException.
+    private static InputStream check(HttpResponse<InputStream> response) throws IOException {
+        if (response.statusCode() / 100 == 2) return response.body();
+        String message;
+        try (InputStreamReader in = new InputStreamReader(response.body(), StandardCharsets.UTF_8)) {
+            Map<String, String> error = new BookJson.ObjectReader(in).next();
+            message = error == null ? null : error.get("error");
+        } catch (IOException e) {
+            message = null;
+        }
+        throw new IOException(message != null ? message : "Server returned HTTP " + response.statusCode());
+    }
+
+    private static List<String[]> readBooks(InputStream body) throws IOException {
+        try (InputStreamReader in = new InputStreamReader(body, StandardCharsets.UTF_8)) {
+            BookJson.ObjectReader reader = new BookJson.ObjectReader(in);
+            List<String[]> books = new ArrayList<>();
+            Map<String, String> object;
+            while ((object = reader.next()) != null) books.add(BookJson.toBook(object, LibraryServer.LABELS));
+            return books;
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+}
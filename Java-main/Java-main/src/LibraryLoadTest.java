@@ -0,0 +1,97 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Load test for LibraryServer: starts an in-process server on a free port, preloads
+// generated books, then runs 1, 2, 4 ... clients against it with a mixed workload
+// (70% get by ID, 20% search, 10% update) and prints throughput and latency per step.
+// Usage: java LibraryLoadTest [books] [secondsPerStep] [maxClients]
+public class LibraryLoadTest {
+    public static void main(String[] args) throws Exception {
+        int bookCount = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int maxClients = args.length > 2 ? Integer.parseInt(args[2]) : 32;
+
+        BookCatalog catalog = new BookCatalog();
+        List<String[]> generated = new ArrayList<>(bookCount);
+        for (int i = 0; i < bookCount; i++) generated.add(BookHeapBenchmark.generate(i));
+        catalog.putAll(generated);
+        LibraryServer server = new LibraryServer(catalog, new BookSearchIndex(catalog), 0);
+        server.start();
+        String url = "http://127.0.0.1:" + server.port();
+        System.out.printf("Server at %s with %,d books, %d s per step%n", url, bookCount, seconds);
+        System.out.println("clients      ops/s    p50 ms    p99 ms   errors");
+
+        try {
+            for (int clients = 1; clients <= maxClients; clients *= 2) {
+                run(url, clients, seconds, bookCount);
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static void run(String url, int clients, int seconds, int bookCount) throws InterruptedException {
+        LibraryClient client = new LibraryClient(url);
+        long[][] latencies = new long[clients][];
+        int[] counts = new int[clients];
+        int[] errors = new int[clients];
+        CountDownLatch done = new CountDownLatch(clients);
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        for (int c = 0; c < clients; c++) {
+            int me = c;
+            Thread thread = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long[] samples = new long[1 << 16];
+                int n = 0;
+                while (System.nanoTime() < end) {
+                    int i = random.nextInt(bookCount);
+                    int op = random.nextInt(10);
+                    long start = System.nanoTime();
+                    try {
+                        if (op < 7) {
+                            client.get("B" + i);
+                        } else if (op < 9) {
+                            client.search("number " + i, 20);
+                        } else {
+                            String[] book = BookHeapBenchmark.generate(i);
+                            book[BookCatalog.COPIES] = Integer.toString(1 + random.nextInt(10));
+                            client.put(book);
+                        }
+                    } catch (Exception e) {
+                        errors[me]++;
+                    }
+                    if (n == samples.length) samples = Arrays.copyOf(samples, n * 2);
+                    samples[n++] = System.nanoTime() - start;
+                }
+                latencies[me] = Arrays.copyOf(samples, n);
+                counts[me] = n;
+                done.countDown();
+            }, "load-client-" + c);
+            thread.start();
+        }
+        done.await();
+
+        int total = 0, failed = 0;
+        for (int c = 0; c < clients; c++) {
+            total += counts[c];
+            failed += errors[c];
+        }
+        long[] all = new long[total];
+        int at = 0;
+        for (long[] l : latencies) {
+            System.arraycopy(l, 0, all, at, l.length);
+            at += l.length;
+        }
+        Arrays.sort(all);
+        System.out.printf("%7d %10.0f %9.2f %9.2f %8d%n", clients, (double) total / seconds,
+            percentile(all, 0.50) / 1e6, percentile(all, 0.99) / 1e6, failed);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        return sorted[Math.min(sorted.length - 1, (int) (p * sorted.length))];
+    }
+}
@@ -1,24 +1,37 @@
 import javax.swing.*;
 import javax.swing.border.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.*;
 import java.io.File;
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
 
 public class LibraryManagerApp extends JFrame implements ActionListener {
     private JTextField[] fields = new JTextField[7];
     private JComboBox<String> categoryCombo;
     private JButton addButton, viewButton, editButton, deleteButton, clearButton, exitButton;
+    private JButton importButton, exportButton, checkOutButton, returnButton;
     private JButton addCategoryButton, deleteCategoryButton, uploadFileButton;
     private JLabel uploadedFileLabel;
     private File selectedBookFile = null;
-    private ArrayList<String[]> books = new ArrayList<>();
-    private ArrayList<String> categories = new ArrayList<>(Arrays.asList(
+    private String editingId;        // book loaded by Edit, and the version it was loaded at
+    private long editingVersion;
+    private BookCatalog books = new BookCatalog();
+    private BookSearchIndex searchIndex;    // built in the background once the catalog is loaded
+    private BookFacetIndex facetIndex;
+    private CompletableFuture<Void> indexes;
+    private BookLoanEngine loans = new BookLoanEngine(books, BookLoanEngine.DEFAULT_LOAN_DAYS);
+    private BookStorage storage;
+    private BookFileStore fileStore;
+    private static LibraryClient remote;   // set with --connect; the catalog is then a mirror of the server's
+    private BookMetadataExtractor metadataExtractor = new BookMetadataExtractor(2, 32L * 1024 * 1024);
+    private static final String[] DEFAULT_CATEGORIES = {
         "Philosophy", "Sports", "Science", "Literature", "History", "Technology"
-    ));
+    };
+    private CategoryRegistry categories = new CategoryRegistry(books);
     private JPanel formPanel, buttonPanel;
     private JLabel titleLabel;
 
@@ -53,6 +66,14 @@ public class LibraryManagerApp extends JFrame implements ActionListener {
         setLocationRelativeTo(null);
         setDefaultCloseOperation(EXIT_ON_CLOSE);
         setResizable(true);
+        if (remote == null) openStorage();
+        else connectToServer();
+        // Trigram postings and facet bit sets take a while for a large library, so they
+        // are built from the loaded catalog off the EDT and the window opens without them.
+        indexes = CompletableFuture.runAsync(() -> {
+            searchIndex = new BookSearchIndex(books);
+            facetIndex = new BookFacetIndex(books);
+        });
 
         // --- Main panel with gradient background ---
         GradientPanel mainPanel = new GradientPanel();
@@ -102,7 +123,7 @@ public class LibraryManagerApp extends JFrame implements ActionListener {
         categoryLabel.setForeground(new Color(44, 62, 80));
         formPanel.add(categoryLabel);
 
-        categoryCombo = new JComboBox<>(categories.toArray(new String[0]));
+        categoryCombo = new JComboBox<>(categories.names().toArray(new String[0]));
         categoryCombo.setFont(new Font("Segoe UI", Font.PLAIN, 16));
         formPanel.add(categoryCombo);
 
@@ -115,8 +136,8 @@ public class LibraryManagerApp extends JFrame implements ActionListener {
         addCategoryButton.addActionListener(e -> {
             String newCategory = JOptionPane.showInputDialog(this, "Enter new category:");
             if (newCategory != null && !newCategory.trim().isEmpty()) {
-                if (!categories.contains(newCategory)) {
-                    categories.add(newCategory);
+                if (categories.add(newCategory)) {
+                    if (storage != null) storage.categoryAdded(newCategory);
                     categoryCombo.addItem(newCategory);
                     showMessage("Category Added", "Category added successfully!", JOptionPane.INFORMATION_MESSAGE);
                 } else {
@@ -136,17 +157,18 @@ public class LibraryManagerApp extends JFrame implements ActionListener {
                 showMessage("No Category Selected", "Please select a category to delete.", JOptionPane.WARNING_MESSAGE);
                 return;
             }
-            for (String[] book : books) {
-                if (book.length > 7 && selectedCategory.equals(book[7])) {
-                    showMessage("Cannot Delete", "This category is assigned to at least one book.", JOptionPane.WARNING_MESSAGE);
-                    return;
-                }
+            int inUse = categories.count(selectedCategory);
+            if (inUse > 0) {
+                showMessage("Cannot Delete", "This category is assigned to " + inUse
+                    + (inUse == 1 ? " book." : " books."), JOptionPane.WARNING_MESSAGE);
+                return;
             }
             int confirm = JOptionPane.showConfirmDialog(this,
                 "Are you sure you want to delete the category '" + selectedCategory + "'?",
                 "Delete Category", JOptionPane.YES_NO_OPTION);
             if (confirm == JOptionPane.YES_OPTION) {
                 categories.remove(selectedCategory);
+                if (storage != null) storage.categoryRemoved(selectedCategory);
                 categoryCombo.removeItem(selectedCategory);
                 showMessage("Category Deleted", "Category deleted successfully.", JOptionPane.INFORMATION_MESSAGE);
             }
@@ -184,7 +206,7 @@ public class LibraryManagerApp extends JFrame implements ActionListener {
         formPanel.add(filePanel);
 
         // Button panel
-        buttonPanel = new JPanel(new GridLayout(6, 1, 12, 12));
+        buttonPanel = new JPanel(new GridLayout(10, 1, 12, 12));
         buttonPanel.setOpaque(false);
 
         // BUTTONS WITH BLACK TEXT
@@ -193,6 +215,10 @@ public class LibraryManagerApp extends JFrame implements ActionListener {
         editButton = createStyledButton("  Edit Book", new Color(186, 42, 186));
         deleteButton = createStyledButton("  Delete Book", new Color(255, 99, 132));
         clearButton = createStyledButton("  Clear Fields", new Color(255, 206, 86));
+        importButton = createStyledButton("  Import Books", new Color(75, 192, 192));
+        exportButton = createStyledButton("  Export Books", new Color(153, 102, 255));
+        checkOutButton = createStyledButton("  Check Out", new Color(46, 204, 113));
+        returnButton = createStyledButton("  Return Book", new Color(241, 196, 15));
         exitButton = createStyledButton("  Exit", new Color(54, 162, 235));
 
         buttonPanel.add(addButton);
@@ -200,6 +226,10 @@ public class LibraryManagerApp extends JFrame implements ActionListener {
         buttonPanel.add(editButton);
         buttonPanel.add(deleteButton);
         buttonPanel.add(clearButton);
+        buttonPanel.add(importButton);
+        buttonPanel.add(exportButton);
+        buttonPanel.add(checkOutButton);
+        buttonPanel.add(returnButton);
         buttonPanel.add(exitButton);
 
         // Add panels to main panel
@@ -210,10 +240,62 @@ public class LibraryManagerApp extends JFrame implements ActionListener {
 
         mainPanel.add(centerPanel, BorderLayout.CENTER);
 
+        loans.setOnHandover(loan -> SwingUtilities.invokeLater(() -> showMessage("Copy Handed Over",
+            "A returned copy of " + loan.bookId + " was lent to " + loan.borrower + " from the waitlist (loan #"
+                + loan.id + ", due " + dueDate(loan) + ").", JOptionPane.INFORMATION_MESSAGE)));
+        loans.setOnWaitCancelled((bookId, borrowers) -> SwingUtilities.invokeLater(() -> showMessage("Waitlist Cancelled",
+            "Book " + bookId + " was removed; " + String.join(", ", borrowers) + " can no longer get a copy of it.",
+            JOptionPane.WARNING_MESSAGE)));
+
         setContentPane(mainPanel);
         setVisible(true);
     }
 
+    private void openStorage() {
+        try {
+            storage = BookStorage.open(BookStorage.defaultDirectory(), books, Arrays.asList(DEFAULT_CATEGORIES));
+            for (String category : storage.categories()) categories.add(category);
+            fileStore = new BookFileStore(BookStorage.defaultDirectory().resolve("files"));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    storage.close();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }));
+        } catch (Exception e) {
+            storage = null;
+            for (String category : DEFAULT_CATEGORIES) categories.add(category);
+            showMessage("Storage Error", "Could not load the saved library, changes will not be kept: " + e.getMessage(),
+                JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void connectToServer() {
+        for (String category : DEFAULT_CATEGORIES) categories.add(category);
+        try {
+            syncFromServer();
+            books.forEach(book -> categories.add(book[7]));
+            setTitle(getTitle() + " - " + books.size() + " books on server");
+        } catch (Exception e) {
+            showMessage("Server Error", "Could not load books from the server: " + e.getMessage(),
+                JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    // Replaces the local mirror with the server's current catalog.
+    private void syncFromServer() throws java.io.IOException {
+        java.util.List<String[]> serverBooks = remote.listAll();
+        java.util.Set<String> ids = new java.util.HashSet<>();
+        for (String[] book : serverBooks) ids.add(book[0]);
+        java.util.List<String> gone = new java.util.ArrayList<>();
+        books.forEach(book -> {
+            if (!ids.contains(book[0])) gone.add(book[0]);
+        });
+        for (String id : gone) books.remove(id);
+        books.putAll(serverBooks);
+    }
+
     private void addFocusHighlight(JTextField field) {
         field.addFocusListener(new FocusAdapter() {
             public void focusGained(FocusEvent e) {
@@ -246,8 +328,7 @@ public class LibraryManagerApp extends JFrame implements ActionListener {
                 uploadedFileLabel.setText("No file selected");
                 return;
             }
-            long maxSize = 50L * 1024 * 1024;
-            if (file.length() > maxSize) {
+            if (file.length() > BookFileStore.MAX_SIZE) {
                 showMessage("File Too Large", "File size must be less than 50 MB.", JOptionPane.ERROR_MESSAGE);
                 selectedBookFile = null;
                 uploadedFileLabel.setText("No file selected");
@@ -255,6 +336,24 @@ public class LibraryManagerApp extends JFrame implements ActionListener {
             }
             selectedBookFile = file;
             uploadedFileLabel.setText(file.getName());
+            uploadedFileLabel.setIcon(null);
+            metadataExtractor.extract(file.toPath()).thenAccept(metadata ->
+                SwingUtilities.invokeLater(() -> prefillFromMetadata(file, metadata)));
+        }
+    }
+
+    // Fills in only the fields the user has left empty, and shows the cover if there is one.
+    private void prefillFromMetadata(File file, BookMetadataExtractor.Metadata metadata) {
+        if (!file.equals(selectedBookFile)) return;
+        String[] values = { null, metadata.title, metadata.author, metadata.publisher, metadata.year, metadata.isbn };
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] != null && !values[i].isEmpty() && fields[i].getText().trim().isEmpty()) {
+                fields[i].setText(values[i]);
+            }
+        }
+        if (metadata.thumbnail != null) {
+            Image icon = metadata.thumbnail.getScaledInstance(-1, 48, Image.SCALE_SMOOTH);
+            uploadedFileLabel.setIcon(new ImageIcon(icon));
         }
     }
 
@@ -293,17 +392,25 @@ public class LibraryManagerApp extends JFrame implements ActionListener {
                     String[] book = new String[9];
                     for (int i = 0; i < 7; i++) book[i] = fields[i].getText();
                     book[7] = (String) categoryCombo.getSelectedItem();
-                    book[8] = (selectedBookFile != null) ? selectedBookFile.getAbsolutePath() : "";
-                    boolean updated = false;
-                    for (int i = 0; i < books.size(); i++) {
-                        if (books.get(i)[0].equals(book[0])) {
-                            books.set(i, book);
-                            updated = true;
-                            break;
+                    book[8] = storeBookFile(selectedBookFile);
+                    if (book[8] == null) return;
+                    boolean added;
+                    if (book[0].equals(editingId)) {
+                        // Saving an edit: only overwrite the version that was loaded into the form.
+                        boolean saved = remote != null ? remote.replace(book, editingVersion)
+                            : books.replace(book, editingVersion);
+                        if (!saved) {
+                            showMessage("Edit Conflict", "This book was changed or deleted by someone else after you "
+                                + "loaded it. Load it again with 'Edit Book' and reapply your changes.",
+                                JOptionPane.WARNING_MESSAGE);
+                            return;
                         }
+                        added = false;
+                    } else {
+                        added = remote != null ? remote.put(book) : books.put(book);
                     }
-                    if (!updated) {
-                        books.add(book);
+                    if (remote != null) books.put(book);
+                    if (added) {
                         showMessage("Book Added", "✅ Book added successfully!", JOptionPane.INFORMATION_MESSAGE);
                     } else {
                         showMessage("Book Updated", "✏ Book updated successfully!", JOptionPane.INFORMATION_MESSAGE);
@@ -311,6 +418,7 @@ public class LibraryManagerApp extends JFrame implements ActionListener {
                     clearFields();
                 }
             } else if (source == viewButton) {
+                if (remote != null) syncFromServer();
                 if (books.isEmpty()) {
                     showMessage("No Books", "There are no books in the library yet.", JOptionPane.INFORMATION_MESSAGE);
                     return;
@@ -321,15 +429,7 @@ public class LibraryManagerApp extends JFrame implements ActionListener {
                 viewFrame.setLocationRelativeTo(this);
 
                 String[] columns = labels;
-                Object[][] data = new Object[books.size()][9];
-                for (int i = 0; i < books.size(); i++) data[i] = books.get(i);
-
-                DefaultTableModel model = new DefaultTableModel(data, columns) {
-                    @Override
-                    public boolean isCellEditable(int row, int column) {
-                        return false;
-                    }
-                };
+                BookTableModel model = new BookTableModel(books, columns);
 
                 JTable table = new JTable(model);
                 table.setFont(new Font("Segoe UI", Font.PLAIN, 15));
@@ -340,7 +440,12 @@ public class LibraryManagerApp extends JFrame implements ActionListener {
                 table.getTableHeader().setForeground(Color.WHITE);
                 table.setSelectionBackground(new Color(220, 240, 255));
                 table.setSelectionForeground(Color.BLACK);
-                table.setAutoCreateRowSorter(true);
+                table.getTableHeader().addMouseListener(new MouseAdapter() {
+                    public void mouseClicked(MouseEvent e) {
+                        int column = table.columnAtPoint(e.getPoint());
+                        if (column != -1) model.sortBy(table.convertColumnIndexToModel(column));
+                    }
+                });
 
                 // Double-click to open file
                 table.addMouseListener(new MouseAdapter() {
@@ -380,52 +485,99 @@ public class LibraryManagerApp extends JFrame implements ActionListener {
                     BorderFactory.createEmptyBorder(5, 5, 5, 5)
                 ));
 
-                searchField.addKeyListener(new KeyAdapter() {
-                    public void keyReleased(KeyEvent e) {
-                        String searchText = searchField.getText().toLowerCase();
-                        DefaultTableModel model = (DefaultTableModel) table.getModel();
-                        model.setRowCount(0);
-
-                        for (String[] book : books) {
-                            boolean match = false;
-                            for (String field : book) {
-                                if (field.toLowerCase().contains(searchText)) {
-                                    match = true;
-                                    break;
-                                }
-                            }
-                            if (match) model.addRow(book);
-                        }
-                    }
-                });
+                JLabel searchStatus = new JLabel(" ");
+                searchStatus.setFont(new Font("Segoe UI", Font.ITALIC, 12));
+                searchStatus.setForeground(new Color(120, 120, 120));
+
+                // The table is live right away; search and filters wait for the background
+                // index build and are switched on from the EDT once it is done.
+                searchField.setEnabled(false);
+                searchStatus.setText("Building the search index...");
+                JLabel facetPlaceholder = new JLabel("Building filters...", JLabel.CENTER);
+                facetPlaceholder.setFont(new Font("Segoe UI", Font.ITALIC, 13));
+                facetPlaceholder.setBorder(BorderFactory.createTitledBorder("Filter"));
 
                 searchPanel.add(searchField, BorderLayout.CENTER);
+                searchPanel.add(searchStatus, BorderLayout.SOUTH);
 
                 JPanel contentPanel = new JPanel(new BorderLayout());
                 contentPanel.add(searchPanel, BorderLayout.NORTH);
                 contentPanel.add(scrollPane, BorderLayout.CENTER);
+                contentPanel.add(facetPlaceholder, BorderLayout.WEST);
 
                 viewFrame.add(contentPanel);
+                viewFrame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+                viewFrame.addWindowListener(new WindowAdapter() {
+                    public void windowClosed(WindowEvent e) {
+                        model.dispose();
+                    }
+                });
                 viewFrame.setVisible(true);
 
+                indexes.thenRun(() -> SwingUtilities.invokeLater(() -> {
+                    if (!viewFrame.isDisplayable()) return;
+                    BookFacetPanel facetPanel = new BookFacetPanel(facetIndex);
+
+                    // Text search narrowed by the chosen facets; with neither, the table shows the live catalog.
+                    BookSearchExecutor searchExecutor = new BookSearchExecutor((text, cancelled) -> {
+                        BitSet selection = facetPanel.selection();
+                        if (text.isEmpty()) {
+                            return selection == null ? Collections.emptyList() : facetIndex.books(selection);
+                        }
+                        java.util.List<String[]> result = searchIndex.search(text, cancelled);
+                        return result == null || selection == null ? result : facetIndex.filter(result, selection);
+                    }, 150, result -> model.setRows(
+                        searchField.getText().isEmpty() && facetPanel.selection() == null ? null : result));
+                    searchExecutor.setOnComplete(() ->
+                        searchStatus.setText(model.getRowCount() + " books  |  " + searchExecutor.latencyReport()));
+
+                    searchField.addKeyListener(new KeyAdapter() {
+                        public void keyReleased(KeyEvent e) {
+                            searchExecutor.submit(searchField.getText());
+                        }
+                    });
+
+                    facetPanel.setOnChange(() -> searchExecutor.submit(searchField.getText()));
+
+                    model.setOnCatalogChanged(() -> {
+                        facetPanel.refresh();
+                        if (!searchField.getText().isEmpty() || facetPanel.selection() != null) {
+                            searchExecutor.submit(searchField.getText());
+                        }
+                    });
+
+                    viewFrame.addWindowListener(new WindowAdapter() {
+                        public void windowClosed(WindowEvent e) {
+                            searchExecutor.shutdown();
+                        }
+                    });
+
+                    contentPanel.remove(facetPlaceholder);
+                    contentPanel.add(facetPanel, BorderLayout.WEST);
+                    contentPanel.revalidate();
+                    searchStatus.setText(" ");
+                    searchField.setEnabled(true);
+                }));
+
             } else if (source == editButton) {
                 String bookID = JOptionPane.showInputDialog(this,
                     "Enter Book ID to Edit:", "Edit Book", JOptionPane.QUESTION_MESSAGE);
 
                 if (bookID != null && !bookID.trim().isEmpty()) {
-                    for (int i = 0; i < books.size(); i++) {
-                        if (books.get(i)[0].equals(bookID)) {
-                            String[] book = books.get(i);
-                            for (int j = 0; j < 7; j++) {
-                                fields[j].setText(book[j]);
-                            }
-                            categoryCombo.setSelectedItem(book[7]);
-                            selectedBookFile = (book[8].isEmpty()) ? null : new File(book[8]);
-                            uploadedFileLabel.setText(selectedBookFile == null ? "No file selected" : selectedBookFile.getName());
-                            showMessage("Edit Mode", "✏ Book loaded for editing. Make changes and click 'Add' to update.",
-                                JOptionPane.INFORMATION_MESSAGE);
-                            return;
+                    BookCatalog.Record record = remote != null ? remote.get(bookID) : books.record(bookID);
+                    if (record != null) {
+                        String[] book = record.book;
+                        editingId = book[0];
+                        editingVersion = record.version;
+                        for (int j = 0; j < 7; j++) {
+                            fields[j].setText(book[j]);
                         }
+                        categoryCombo.setSelectedItem(book[7]);
+                        selectedBookFile = (book[8].isEmpty()) ? null : new File(book[8]);
+                        uploadedFileLabel.setText(selectedBookFile == null ? "No file selected" : selectedBookFile.getName());
+                        showMessage("Edit Mode", "✏ Book loaded for editing. Make changes and click 'Add' to update.",
+                            JOptionPane.INFORMATION_MESSAGE);
+                        return;
                     }
                     showMessage("Not Found", "❌ Book not found", JOptionPane.WARNING_MESSAGE);
                 }
@@ -434,20 +586,27 @@ public class LibraryManagerApp extends JFrame implements ActionListener {
                 String bookID = JOptionPane.showInputDialog(this,
                     "Enter Book ID to Delete:", "Delete Book", JOptionPane.WARNING_MESSAGE);
                 if (bookID != null && !bookID.trim().isEmpty()) {
-                    for (int i = 0; i < books.size(); i++) {
-                        if (books.get(i)[0].equals(bookID)) {
-                            books.remove(i);
-                            showMessage("Book Deleted", "🗑 Book deleted successfully",
-                                JOptionPane.INFORMATION_MESSAGE);
-                            clearFields();
-                            return;
-                        }
+                    boolean deleted = remote != null ? remote.delete(bookID) : books.remove(bookID) != null;
+                    if (remote != null) books.remove(bookID);
+                    if (deleted) {
+                        showMessage("Book Deleted", "🗑 Book deleted successfully",
+                            JOptionPane.INFORMATION_MESSAGE);
+                        clearFields();
+                        return;
                     }
                     showMessage("Not Found", "❌ Book not found", JOptionPane.WARNING_MESSAGE);
                 }
 
             } else if (source == clearButton) {
                 clearFields();
+            } else if (source == importButton) {
+                importBooks();
+            } else if (source == exportButton) {
+                exportBooks();
+            } else if (source == checkOutButton) {
+                checkOutBook();
+            } else if (source == returnButton) {
+                returnBook();
             } else if (source == exitButton) {
                 int confirm = JOptionPane.showConfirmDialog(this,
                     "Are you sure you want to exit?", "Exit",
@@ -461,29 +620,185 @@ public class LibraryManagerApp extends JFrame implements ActionListener {
         }
     }
 
-    private boolean validateFields() {
-        for (int i = 0; i < fields.length; i++) {
-            if (fields[i].getText().trim().isEmpty()) {
-                showMessage("Validation Error", "Please fill in all fields", JOptionPane.WARNING_MESSAGE);
-                fields[i].requestFocus();
-                return false;
+    private void checkOutBook() throws java.io.IOException {
+        String bookID = JOptionPane.showInputDialog(this, "Enter Book ID to Check Out:", "Check Out",
+            JOptionPane.QUESTION_MESSAGE);
+        if (bookID == null || bookID.trim().isEmpty()) return;
+        if (!books.contains(bookID)) {
+            showMessage("Not Found", "❌ Book not found", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        String borrower = JOptionPane.showInputDialog(this, "Borrower name:", "Check Out", JOptionPane.QUESTION_MESSAGE);
+        if (borrower == null || borrower.trim().isEmpty()) return;
+
+        BookLoanEngine.Loan loan = remote != null ? remote.checkOut(bookID, borrower, false)
+            : loans.checkOut(bookID, borrower);
+        if (loan == null) {
+            int confirm = JOptionPane.showConfirmDialog(this,
+                "No copies are available. Add " + borrower + " to the waitlist?", "Check Out",
+                JOptionPane.YES_NO_OPTION);
+            if (confirm != JOptionPane.YES_OPTION) return;
+            loan = remote != null ? remote.checkOut(bookID, borrower, true) : loans.checkOutOrWait(bookID, borrower);
+            if (loan == null) {
+                showMessage("Waitlisted", borrower + " will get the next returned copy.", JOptionPane.INFORMATION_MESSAGE);
+                return;
             }
-            if (i == 4 || i == 6) {
+        }
+        showMessage("Checked Out", "✅ Loan #" + loan.id + ": " + bookID + " lent to " + borrower
+            + ", due " + dueDate(loan) + ".", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    private void returnBook() throws java.io.IOException {
+        String loanID = JOptionPane.showInputDialog(this, "Enter Loan Number:", "Return Book", JOptionPane.QUESTION_MESSAGE);
+        if (loanID == null || loanID.trim().isEmpty()) return;
+        long id;
+        try {
+            id = Long.parseLong(loanID.trim().replace("#", ""));
+        } catch (NumberFormatException ex) {
+            showMessage("Validation Error", "Loan number must be a number.", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        if (remote != null ? remote.returnLoan(id) : loans.returnLoan(id)) {
+            showMessage("Book Returned", "📥 Loan #" + id + " returned.", JOptionPane.INFORMATION_MESSAGE);
+        } else {
+            showMessage("Not Found", "❌ No active loan with that number", JOptionPane.WARNING_MESSAGE);
+        }
+    }
+
+    private static String dueDate(BookLoanEngine.Loan loan) {
+        return java.time.Instant.ofEpochMilli(loan.due).atZone(java.time.ZoneId.systemDefault()).toLocalDate().toString();
+    }
+
+    private void importBooks() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setFileFilter(new FileNameExtensionFilter("Book Lists (.csv, .json)", "csv", "json"));
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File file = fileChooser.getSelectedFile();
+
+        JDialog progressDialog = new JDialog(this, "Importing Books", false);
+        JLabel progressLabel = new JLabel("Reading " + file.getName() + "...");
+        progressLabel.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        progressLabel.setBorder(new EmptyBorder(10, 10, 10, 10));
+        JProgressBar progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+        progressDialog.add(progressLabel, BorderLayout.CENTER);
+        progressDialog.add(progressBar, BorderLayout.SOUTH);
+        progressDialog.setSize(420, 120);
+        progressDialog.setLocationRelativeTo(this);
+        progressDialog.setVisible(true);
+        importButton.setEnabled(false);
+
+        new SwingWorker<BookImporter.Result, String>() {
+            @Override
+            protected BookImporter.Result doInBackground() throws Exception {
+                if (storage != null) storage.setSync(false);
                 try {
-                    Integer.parseInt(fields[i].getText());
-                } catch (NumberFormatException e) {
-                    showMessage("Validation Error", labels[i] + " must be a number", JOptionPane.WARNING_MESSAGE);
-                    fields[i].requestFocus();
-                    return false;
+                    BookImporter importer = remote == null ? new BookImporter(books, labels)
+                        : new BookImporter(chunk -> {
+                            try {
+                                remote.putAll(chunk);
+                            } catch (java.io.IOException e) {
+                                throw new java.io.UncheckedIOException(e);
+                            }
+                            books.putAll(chunk);
+                        }, labels);
+                    return importer.importFile(file.toPath(), (read, imported, rejected, rate) ->
+                        publish(String.format("%,d rows read, %,d imported, %,d rejected (%,.0f rows/s)",
+                            read, imported, rejected, rate)));
+                } finally {
+                    if (storage != null) storage.setSync(true);
                 }
             }
+
+            @Override
+            protected void process(java.util.List<String> updates) {
+                progressLabel.setText(updates.get(updates.size() - 1));
+            }
+
+            @Override
+            protected void done() {
+                progressDialog.dispose();
+                importButton.setEnabled(true);
+                try {
+                    BookImporter.Result result = get();
+                    for (String category : result.categories) {
+                        if (categories.add(category)) {
+                            categoryCombo.addItem(category);
+                            if (storage != null) storage.categoryAdded(category);
+                        }
+                    }
+                    StringBuilder message = new StringBuilder(String.format(
+                        "Imported %,d of %,d rows in %.1f s (%,.0f rows/s).",
+                        result.imported, result.read, result.millis / 1000.0, result.rowsPerSecond()));
+                    if (result.rejected > 0) {
+                        message.append(String.format("\n%,d rows were rejected:", result.rejected));
+                        for (int i = 0; i < Math.min(10, result.errors.size()); i++) {
+                            message.append("\n").append(result.errors.get(i));
+                        }
+                    }
+                    showMessage("Import Finished", message.toString(),
+                        result.rejected > 0 ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    showMessage("Import Failed", "Could not import books: " + cause.getMessage(), JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    private void exportBooks() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setFileFilter(new FileNameExtensionFilter("Book Lists (.csv, .json)", "csv", "json"));
+        fileChooser.setSelectedFile(new File("books.csv"));
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File file = fileChooser.getSelectedFile();
+        exportButton.setEnabled(false);
+
+        new SwingWorker<Long, Void>() {
+            @Override
+            protected Long doInBackground() throws Exception {
+                return BookExporter.exportFile(books, file.toPath(), labels);
+            }
+
+            @Override
+            protected void done() {
+                exportButton.setEnabled(true);
+                try {
+                    showMessage("Export Finished", String.format("Exported %,d books to %s.", get(), file.getName()),
+                        JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    showMessage("Export Failed", "Could not export books: " + cause.getMessage(), JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    private boolean validateFields() {
+        String[] book = new String[9];
+        for (int i = 0; i < fields.length; i++) book[i] = fields[i].getText();
+        book[7] = (String) categoryCombo.getSelectedItem();
+        int invalid = BookValidator.firstInvalid(book);
+        if (invalid == -1) return true;
+        showMessage("Validation Error", BookValidator.describe(book, invalid, labels), JOptionPane.WARNING_MESSAGE);
+        if (invalid < fields.length) fields[invalid].requestFocus();
+        else categoryCombo.requestFocus();
+        return false;
+    }
+
+    // Copies the file into the managed file store and returns the path to record in book[8],
+    // or null (after telling the user) when it cannot be stored.
+    private String storeBookFile(File file) {
+        if (file == null) return "";
+        if (fileStore == null) return file.getAbsolutePath();
+        try {
+            return fileStore.store(file.toPath()).toString();
+        } catch (BookFileStore.TooLargeException ex) {
+            showMessage("File Too Large", "File size must be less than 50 MB.", JOptionPane.ERROR_MESSAGE);
+        } catch (Exception ex) {
+            showMessage("File Error", "Could not store the book file: " + ex.getMessage(), JOptionPane.ERROR_MESSAGE);
         }
-        if (categoryCombo.getSelectedItem() == null || ((String)categoryCombo.getSelectedItem()).trim().isEmpty()) {
-            showMessage("Validation Error", "Please select a category", JOptionPane.WARNING_MESSAGE);
-            categoryCombo.requestFocus();
-            return false;
-        }
-        return true;
+        return null;
     }
 
     private boolean validateBookFile() {
@@ -502,13 +817,23 @@ public class LibraryManagerApp extends JFrame implements ActionListener {
             categoryCombo.setSelectedIndex(0);
         selectedBookFile = null;
         uploadedFileLabel.setText("No file selected");
+        uploadedFileLabel.setIcon(null);
+        editingId = null;
     }
 
     private void showMessage(String title, String message, int messageType) {
         JOptionPane.showMessageDialog(this, message, title, messageType);
     }
 
-    public static void main(String[] args) {
+    // Usage: LibraryManagerApp                     standalone, with local storage
+    //        LibraryManagerApp --server [port] [dir]  headless LibraryServer
+    //        LibraryManagerApp --connect URL          desktop client of a LibraryServer
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--server")) {
+            LibraryServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 1 && args[0].equals("--connect")) remote = new LibraryClient(args[1]);
         SwingUtilities.invokeLater(() -> {
             try {
                 UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -0,0 +1,344 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Headless library server: serves the catalog over a local HTTP/JSON API so several
+// desktop clients (LibraryManagerApp --connect) can share one catalog.
+//
+//   GET    /books?offset=0&limit=100   list books in catalog order
+//   GET    /books?all=true             every book, all from one version of the catalog
+//   POST   /books                      upsert a JSON array of books
+//   GET    /books/{id}                 one book, with its version as the ETag
+//   PUT    /books/{id}                 add or update one book; with If-Match: "<version>"
+//                                      only if unchanged since (412 otherwise), with
+//                                      If-None-Match: * only if it does not exist yet
+//   DELETE /books/{id}                 delete one book
+//   GET    /search?q=text&limit=100    text search
+//   POST   /loans                      check out {"book", "borrower", "wait"}: 201 with the
+//                                      loan, 202 when put on the waitlist, 409 when none left
+//   DELETE /loans/{id}                 return a loan
+//   GET    /loans/overdue              loans past their due date, earliest first
+//
+// Requests run on virtual threads when the JVM has them, otherwise on a cached pool.
+public class LibraryServer {
+    static final String[] LABELS = {
+        "Book ID", "Book Title", "Author", "Publisher",
+        "Year of Publication", "ISBN", "Number of Copies", "Category", "Book File"
+    };
+    private static final int MAX_LIMIT = 10_000;
+
+    private final BookCatalog catalog;
+    private final BookSearchIndex searchIndex;
+    private final BookLoanEngine loans;
+    private final HttpServer http;
+    private final ExecutorService executor;
+
+    LibraryServer(BookCatalog catalog, BookSearchIndex searchIndex, int port) throws IOException {
+        this.catalog = catalog;
+        this.searchIndex = searchIndex;
+        this.loans = new BookLoanEngine(catalog, BookLoanEngine.DEFAULT_LOAN_DAYS);
+        // The JDK server writes headers and body separately; without TCP_NODELAY each small
+        // response waits out the client's delayed ACK (~40 ms).
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        this.http = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        this.executor = requestExecutor();
+        http.setExecutor(executor);
+        http.createContext("/books", this::handleBooks);
+        http.createContext("/search", this::handleSearch);
+        http.createContext("/loans", this::handleLoans);
+    }
+
+    void start() {
+        http.start();
+    }
+
+    int port() {
+        return http.getAddress().getPort();
+    }
+
+    void stop() {
+        http.stop(0);
+        executor.shutdownNow();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8085;
+        Path dir = args.length > 1 ? Paths.get(args[1]) : BookStorage.defaultDirectory();
+        BookCatalog catalog = new BookCatalog();
+        BookStorage storage = BookStorage.open(dir, catalog, Arrays.asList(
+            "Philosophy", "Sports", "Science", "Literature", "History", "Technology"));
+        LibraryServer server = new LibraryServer(catalog, new BookSearchIndex(catalog), port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            try {
+                storage.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }));
+        server.start();
+        System.out.println("Library server listening on http://127.0.0.1:" + server.port()
+            + " with " + catalog.size() + " books (loaded in " + storage.loadMillis() + " ms)");
+    }
+
+    static ExecutorService requestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private void handleBooks(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getRawPath();
+            String method = exchange.getRequestMethod();
+            if (path.equals("/books") || path.equals("/books/")) {
+                if (method.equals("GET")) {
+                    Map<String, String> query = query(exchange);
+                    List<String[]> rows = catalog.snapshot();
+                    if ("true".equals(query.get("all"))) {
+                        sendBooks(exchange, rows);
+                    } else {
+                        int offset = Math.min(intParam(query, "offset", 0), rows.size());
+                        int limit = Math.min(intParam(query, "limit", 100), MAX_LIMIT);
+                        sendBooks(exchange, rows.subList(offset, Math.min(rows.size(), offset + limit)));
+                    }
+                } else if (method.equals("POST")) {
+                    List<String[]> books = readBooks(exchange);
+                    for (String[] book : books) {
+                        String error = validate(book);
+                        if (error != null) {
+                            sendError(exchange, 400, "Book " + book[BookCatalog.ID] + ": " + error);
+                            return;
+                        }
+                    }
+                    int added = catalog.putAll(books);
+                    sendJson(exchange, 200, "{\"added\":" + added + ",\"updated\":" + (books.size() - added) + "}");
+                } else {
+                    sendError(exchange, 405, "Method not allowed");
+                }
+                return;
+            }
+            String id = URLDecoder.decode(path.substring("/books/".length()), StandardCharsets.UTF_8);
+            switch (method) {
+                case "GET": {
+                    BookCatalog.Record record = catalog.record(id);
+                    if (record == null) {
+                        sendError(exchange, 404, "Book not found");
+                    } else {
+                        exchange.getResponseHeaders().set("ETag", etag(record.version));
+                        sendJson(exchange, 200, BookJson.toJson(record.book));
+                    }
+                    break;
+                }
+                case "PUT": {
+                    List<String[]> books = readBooks(exchange);
+                    if (books.size() != 1) {
+                        sendError(exchange, 400, "Expected one book");
+                        return;
+                    }
+                    String[] book = books.get(0);
+                    book[BookCatalog.ID] = id;
+                    String error = validate(book);
+                    if (error != null) {
+                        sendError(exchange, 400, error);
+                        return;
+                    }
+                    long expected = expectedVersion(exchange);
+                    boolean added;
+                    if (expected < 0) {
+                        added = catalog.put(book);
+                    } else if (catalog.replace(book, expected)) {
+                        added = expected == 0;
+                    } else {
+                        sendError(exchange, 412, "Book " + id + " was changed by someone else");
+                        return;
+                    }
+                    exchange.getResponseHeaders().set("ETag", etag(catalog.version(id)));
+                    sendJson(exchange, added ? 201 : 200, BookJson.toJson(book));
+                    break;
+                }
+                case "DELETE":
+                    if (catalog.remove(id) == null) sendError(exchange, 404, "Book not found");
+                    else send(exchange, 204, null);
+                    break;
+                default:
+                    sendError(exchange, 405, "Method not allowed");
+            }
+        } catch (BookJson.SyntaxException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            sendError(exchange, 500, String.valueOf(e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleSearch(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                sendError(exchange, 405, "Method not allowed");
+                return;
+            }
+            Map<String, String> query = query(exchange);
+            int limit = Math.min(intParam(query, "limit", 100), MAX_LIMIT);
+            List<String[]> result = searchIndex.search(query.getOrDefault("q", ""));
+            sendBooks(exchange, result.subList(0, Math.min(limit, result.size())));
+        } catch (RuntimeException e) {
+            sendError(exchange, 500, String.valueOf(e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleLoans(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getRawPath();
+            String method = exchange.getRequestMethod();
+            if ((path.equals("/loans") || path.equals("/loans/")) && method.equals("POST")) {
+                Map<String, String> request = new BookJson.ObjectReader(
+                    new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)).next();
+                String bookId = request == null ? null : request.get("book");
+                String borrower = request == null ? null : request.get("borrower");
+                if (bookId == null || borrower == null || borrower.trim().isEmpty()) {
+                    sendError(exchange, 400, "Expected book and borrower");
+                } else if (!catalog.contains(bookId)) {
+                    sendError(exchange, 404, "Book not found");
+                } else {
+                    boolean wait = "true".equals(request.get("wait"));
+                    BookLoanEngine.Loan loan = wait ? loans.checkOutOrWait(bookId, borrower)
+                        : loans.checkOut(bookId, borrower);
+                    if (loan != null) sendJson(exchange, 201, loan.toJson());
+                    else if (wait) sendJson(exchange, 202, "{\"waiting\":\"" + loans.waiting(bookId) + "\"}");
+                    else sendError(exchange, 409, "No copy available");
+                }
+            } else if (path.equals("/loans/overdue") && method.equals("GET")) {
+                StringBuilder json = new StringBuilder("[");
+                for (BookLoanEngine.Loan loan : loans.overdue(System.currentTimeMillis())) {
+                    if (json.length() > 1) json.append(',');
+                    json.append(loan.toJson());
+                }
+                sendJson(exchange, 200, json.append(']').toString());
+            } else if (path.startsWith("/loans/") && method.equals("DELETE")) {
+                long loanId;
+                try {
+                    loanId = Long.parseLong(path.substring("/loans/".length()));
+                } catch (NumberFormatException e) {
+                    loanId = -1;
+                }
+                if (loans.returnLoan(loanId)) send(exchange, 204, null);
+                else sendError(exchange, 404, "Loan not found");
+            } else {
+                sendError(exchange, 405, "Method not allowed");
+            }
+        } catch (BookJson.SyntaxException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            sendError(exchange, 500, String.valueOf(e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static String validate(String[] book) {
+        int invalid = BookValidator.firstInvalid(book);
+        return invalid == -1 ? null : BookValidator.describe(book, invalid, LABELS);
+    }
+
+    private static String etag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    // Version the client says it is updating: from If-Match, 0 for If-None-Match: *,
+    // or -1 for an unconditional write.
+    private static long expectedVersion(HttpExchange exchange) {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if ("*".equals(ifNoneMatch)) return 0;
+        String ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+        if (ifMatch == null) return -1;
+        try {
+            return Long.parseLong(ifMatch.replace("\"", "").trim());
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;   // matches no version, so the write is refused
+        }
+    }
+
+    private static List<String[]> readBooks(HttpExchange exchange) throws IOException {
+        BookJson.ObjectReader reader = new BookJson.ObjectReader(
+            new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+        List<String[]> books = new ArrayList<>();
+        Map<String, String> object;
+        while ((object = reader.next()) != null) books.add(BookJson.toBook(object, LABELS));
+        return books;
+    }
+
+    private static void sendBooks(HttpExchange exchange, List<String[]> books) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8))) {
+            out.write('[');
+            for (int i = 0; i < books.size(); i++) {
+                if (i > 0) out.write(',');
+                BookJson.writeBook(out, books.get(i));
+            }
+            out.write(']');
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        BookJson.writeString(json, message);
+        sendJson(exchange, status, json.append('}').toString());
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        send(exchange, status, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body == null ? -1 : body.length);
+        if (body != null) exchange.getResponseBody().write(body);
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) return params;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static int intParam(Map<String, String> params, String name, int fallback) {
+        try {
+            return Math.max(0, Integer.parseInt(params.getOrDefault(name, String.valueOf(fallback))));
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Interest rate rules for FD and RD accounts, loaded from a text file. Each line is
+//
+//   product  type  age  amount  rate
+//
+// product is FD, RD or *; type is an account type such as Senior, or *; age is an
+// inclusive range "60-80", "60-" (60 and over), "-17" or *; amount is a slab "lo-hi"
+// meaning lo < amount <= hi, with either end open ("10000000-" = above 1 crore), or *.
+// The rate of an account is the sum of the rates of every rule it matches, added in
+// file order. '#' starts a comment.
+//
+// Rules are compiled into a dense table over (product, type, age band, amount slab);
+// an account's band and slab are found by binary search over the sorted boundaries,
+// so a lookup never walks the rules. That table doubles as the resolution cache: every
+// distinct outcome is computed once at load time. reload() swaps in a new table
+// atomically, so accrual in progress keeps the rules it started with.
+class RateResolver {
+    static final String DEFAULT_RULES =
+        "# product  type    age   amount      rate\n"
+      + "*          Senior  60-   *           0.5\n"
+      + "*          *       *     -10000000   0.5\n"
+      + "*          *       *     10000000-   1.0\n";
+
+    private static final String[] PRODUCTS = {null, "FD", "RD"};   // by AccountTable product code
+    private static volatile RateResolver shared;
+
+    // One loaded rule file, compiled. Immutable.
+    static final class Rules {
+        private final HashMap<String, Integer> types = new HashMap<>();   // other types use index types.size()
+        private final int[] ageCuts;          // band = number of cuts <= age
+        private final double[] amountCuts;    // slab = number of cuts < amount
+        private final double[] rates;         // [product][type][band][slab]
+
+        private Rules(List<Rule> rules) {
+            TreeSet<Integer> ages = new TreeSet<>();
+            TreeSet<Double> amounts = new TreeSet<>();
+            for (Rule rule : rules) {
+                if (rule.type != null) types.putIfAbsent(rule.type, types.size());
+                if (rule.minAge != Integer.MIN_VALUE) ages.add(rule.minAge);
+                if (rule.maxAge != Integer.MAX_VALUE) ages.add(rule.maxAge + 1);
+                if (rule.above != Double.NEGATIVE_INFINITY) amounts.add(rule.above);
+                if (rule.upTo != Double.POSITIVE_INFINITY) amounts.add(rule.upTo);
+            }
+            ageCuts = ages.stream().mapToInt(Integer::intValue).toArray();
+            amountCuts = amounts.stream().mapToDouble(Double::doubleValue).toArray();
+
+            int typeCount = types.size() + 1;
+            rates = new double[PRODUCTS.length * typeCount * (ageCuts.length + 1) * (amountCuts.length + 1)];
+            String[] typeNames = new String[typeCount];
+            types.forEach((name, index) -> typeNames[index] = name);
+            for (int product = 1; product < PRODUCTS.length; product++) {
+                for (int type = 0; type < typeCount; type++) {
+                    for (int band = 0; band <= ageCuts.length; band++) {
+                        int age = band == 0 ? Integer.MIN_VALUE : ageCuts[band - 1];
+                        for (int slab = 0; slab <= amountCuts.length; slab++) {
+                            double amount = slab < amountCuts.length ? amountCuts[slab]
+                                : amountCuts.length == 0 ? 0 : Math.nextUp(amountCuts[slab - 1]);
+                            double rate = 0.0;
+                            for (Rule rule : rules) {
+                                if (rule.matches(PRODUCTS[product], typeNames[type], age, amount)) rate += rule.rate;
+                            }
+                            rates[cell(product, type, band, slab)] = rate;
+                        }
+                    }
+                }
+            }
+        }
+
+        // Index of the account type for rate(); types no rule names share one index.
+        int typeIndex(String accountType) {
+            Integer index = accountType == null ? null : types.get(accountType);
+            return index == null ? types.size() : index;
+        }
+
+        double rate(int product, int typeIndex, int age, double amount) {
+            if (product <= 0 || product >= PRODUCTS.length) return 0;
+            return rates[cell(product, typeIndex, ageBand(age), amountSlab(amount))];
+        }
+
+        // The compiled table, for kernels that find the cell themselves: the cell of an
+        // account is cellBase(product, type) + band * slabs() + slab, where band counts
+        // the ageCuts() <= age and slab counts the amountCuts() < amount. Do not modify.
+        double[] table() {
+            return rates;
+        }
+
+        int[] ageCuts() {
+            return ageCuts;
+        }
+
+        double[] amountCuts() {
+            return amountCuts;
+        }
+
+        int slabs() {
+            return amountCuts.length + 1;
+        }
+
+        int cellBase(int product, int typeIndex) {
+            return cell(product, typeIndex, 0, 0);
+        }
+
+        private int ageBand(int age) {
+            int i = Arrays.binarySearch(ageCuts, age);
+            return i >= 0 ? i + 1 : -i - 1;
+        }
+
+        private int amountSlab(double amount) {
+            int i = Arrays.binarySearch(amountCuts, amount);
+            return i >= 0 ? i : -i - 1;
+        }
+
+        private int cell(int product, int type, int band, int slab) {
+            int typeCount = types.size() + 1;
+            return ((product * typeCount + type) * (ageCuts.length + 1) + band) * (amountCuts.length + 1) + slab;
+        }
+    }
+
+    private static final class Rule {
+        String product, type;         // null = any
+        int minAge = Integer.MIN_VALUE, maxAge = Integer.MAX_VALUE;
+        double above = Double.NEGATIVE_INFINITY, upTo = Double.POSITIVE_INFINITY;
+        double rate;
+
+        boolean matches(String product, String type, int age, double amount) {
+            return (this.product == null || this.product.equals(product))
+                && (this.type == null || this.type.equals(type))
+                && age >= minAge && age <= maxAge
+                && amount > above && amount <= upTo;
+        }
+    }
+
+    private final Path file;
+    private volatile Rules rules;
+    private volatile long loadedModified;
+    private ScheduledExecutorService watcher;
+
+    // Rules from the file; the built-in rules when file is null.
+    RateResolver(Path file) throws IOException {
+        this.file = file;
+        reload();
+    }
+
+    // Resolver used by Exp3.FDAccount and Exp3.RDAccount: the file named by -Drates.file, else
+    // rates.txt in the working directory if there is one (watched for changes), else
+    // the built-in rules.
+    static RateResolver shared() {
+        RateResolver resolver = shared;
+        if (resolver != null) return resolver;
+        synchronized (RateResolver.class) {
+            if (shared == null) {
+                Path file = Paths.get(System.getProperty("rates.file", "rates.txt"));
+                try {
+                    resolver = new RateResolver(Files.isRegularFile(file) ? file : null);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Could not load rate rules from " + file + ": " + e.getMessage(), e);
+                }
+                resolver.watch(2_000);
+                shared = resolver;
+            }
+            return shared;
+        }
+    }
+
+    Rules current() {
+        return rules;
+    }
+
+    double rate(int product, String accountType, int age, double amount) {
+        Rules current = rules;
+        return current.rate(product, current.typeIndex(accountType), age, amount);
+    }
+
+    // Reads and compiles the file again. On error the rules in use are kept.
+    void reload() throws IOException {
+        if (file == null) {
+            rules = parse(new StringReader(DEFAULT_RULES), "built-in rules");
+            return;
+        }
+        long modified = Files.getLastModifiedTime(file).toMillis();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            rules = parse(in, file.toString());
+        }
+        loadedModified = modified;
+    }
+
+    // Reloads the file whenever its modification time changes, checking every period.
+    synchronized void watch(long periodMillis) {
+        if (file == null || watcher != null) return;
+        watcher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "rate-rules-watcher");
+            t.setDaemon(true);
+            return t;
+        });
+        watcher.scheduleWithFixedDelay(() -> {
+            try {
+                long modified = Files.getLastModifiedTime(file).toMillis();
+                if (modified == loadedModified) return;
+                loadedModified = modified;   // report a broken file once, not on every check
+                reload();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Keeping previous rate rules: " + e.getMessage());
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    static Rules parse(Reader reader, String source) throws IOException {
+        BufferedReader in = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        List<Rule> rules = new ArrayList<>();
+        String line;
+        int lineNumber = 0;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            int comment = line.indexOf('#');
+            if (comment >= 0) line = line.substring(0, comment);
+            line = line.trim();
+            if (line.isEmpty()) continue;
+            String[] parts = line.split("\\s+");
+            if (parts.length != 5) throw new IOException(source + ":" + lineNumber + ": expected 5 columns");
+            try {
+                Rule rule = new Rule();
+                rule.product = any(parts[0]);
+                if (rule.product != null && !rule.product.equals("FD") && !rule.product.equals("RD")) {
+                    throw new IOException(source + ":" + lineNumber + ": product must be FD, RD or *");
+                }
+                rule.type = any(parts[1]);
+                if (any(parts[2]) != null) {
+                    String[] range = range(parts[2]);
+                    if (!range[0].isEmpty()) rule.minAge = Integer.parseInt(range[0]);
+                    if (!range[1].isEmpty()) rule.maxAge = Integer.parseInt(range[1]);
+                }
+                if (any(parts[3]) != null) {
+                    String[] range = range(parts[3]);
+                    if (!range[0].isEmpty()) rule.above = Double.parseDouble(range[0].replace("_", ""));
+                    if (!range[1].isEmpty()) rule.upTo = Double.parseDouble(range[1].replace("_", ""));
+                }
+                rule.rate = Double.parseDouble(parts[4]);
+                rules.add(rule);
+            } catch (NumberFormatException e) {
+                throw new IOException(source + ":" + lineNumber + ": bad number " + e.getMessage());
+            }
+        }
+        return new Rules(rules);
+    }
+
+    private static String any(String value) {
+        return value.equals("*") ? null : value;
+    }
+
+    // "lo-hi", "lo-" or "-hi" as {lo, hi} with "" for an open end. A single value is lo-lo.
+    private static String[] range(String value) {
+        int dash = value.indexOf('-', 1);
+        if (value.startsWith("-")) return new String[] {"", value.substring(1)};
+        if (dash < 0) return new String[] {value, value};
+        return new String[] {value.substring(0, dash), value.substring(dash + 1)};
+    }
+}
@@ -0,0 +1,107 @@
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Rent/return throughput of the hash-indexed VideoStore (Exp2) against the original
+// array scan, for growing store sizes, then the VideoStore alone with 1..8 renter
+// threads (the array version is not thread-safe). Each operation rents a random
+// title and returns it.
+// Usage: java VideoStoreBenchmark [secondsPerStep]
+public class VideoStoreBenchmark {
+    // The original VideoStore logic, without the size cap and the console output.
+    static class ArrayVideoStore {
+        private String[] titles = new String[10];
+        private boolean[] checked = new boolean[10];
+        private int size;
+
+        void addVideo(String title) {
+            if (size == titles.length) {
+                titles = Arrays.copyOf(titles, size * 2);
+                checked = Arrays.copyOf(checked, size * 2);
+            }
+            titles[size++] = title;
+        }
+
+        boolean rent(String title) {
+            for (int i = 0; i < size; i++) {
+                if (titles[i].equals(title) && !checked[i]) {
+                    checked[i] = true;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean giveBack(String title) {
+            for (int i = 0; i < size; i++) {
+                if (titles[i].equals(title) && checked[i]) {
+                    checked[i] = false;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        System.out.println("  titles    array ops/s     hash ops/s");
+        for (int titles : new int[] {10, 100, 1_000, 10_000, 100_000}) {
+            ArrayVideoStore array = new ArrayVideoStore();
+            Exp2.VideoStore store = new Exp2.VideoStore();
+            for (int i = 0; i < titles; i++) {
+                array.addVideo("Video " + i);
+                store.addVideo("Video " + i, 2);
+            }
+            double arrayOps = measure(seconds, titles, t -> array.rent(t) && array.giveBack(t));
+            double hashOps = measure(seconds, titles, t -> store.rent(t) && store.giveBack(t));
+            System.out.printf("%8d %14.0f %14.0f%n", titles, arrayOps, hashOps);
+        }
+
+        Exp2.VideoStore store = new Exp2.VideoStore();
+        for (int i = 0; i < 1_000; i++) store.addVideo("Video " + i, 2);
+        System.out.println("threads     hash ops/s   lost returns");
+        for (int threads = 1; threads <= 8; threads *= 2) {
+            AtomicLong ops = new AtomicLong();
+            AtomicLong lost = new AtomicLong();
+            CountDownLatch done = new CountDownLatch(threads);
+            long end = System.nanoTime() + seconds * 1_000_000_000L;
+            for (int t = 0; t < threads; t++) {
+                new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long n = 0;
+                    while (System.nanoTime() < end) {
+                        String title = "Video " + random.nextInt(1_000);
+                        if (store.rent(title)) {
+                            // Renting two copies is allowed; failing to give back a copy we hold is not.
+                            if (!store.giveBack(title)) lost.incrementAndGet();
+                        }
+                        n++;
+                    }
+                    ops.addAndGet(n);
+                    done.countDown();
+                }).start();
+            }
+            done.await();
+            System.out.printf("%7d %14.0f %14d%n", threads, (double) ops.get() / seconds, lost.get());
+        }
+    }
+
+    interface Op {
+        boolean run(String title);
+    }
+
+    private static double measure(int seconds, int titles, Op op) {
+        String[] names = new String[titles];
+        for (int i = 0; i < titles; i++) names[i] = "Video " + i;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        long n = 0;
+        while (System.nanoTime() < end) {
+            for (int i = 0; i < 256; i++) op.run(names[random.nextInt(titles)]);
+            n += 256;
+        }
+        return (double) n / seconds;
+    }
+}